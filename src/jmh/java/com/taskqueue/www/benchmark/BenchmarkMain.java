@@ -0,0 +1,28 @@
+package com.taskqueue.www.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching args[0] (regex, default all) with the GC profiler,
+ * so every result comes with gc.alloc.rate.norm (bytes allocated per operation).
+ * Results are also written to target/jmh-result.json for comparing commits.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+
+        Options options = new OptionsBuilder()
+                .include(BenchmarkMain.class.getPackageName() + ".*" + include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.taskqueue.www.benchmark;
+
+import com.taskqueue.www.handler.TaskBulkhead;
+import com.taskqueue.www.handler.TaskContext;
+import com.taskqueue.www.handler.TaskHandler;
+import com.taskqueue.www.handler.TaskHandlerRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler lookup by type and the bulkhead hand-off around a no-op handler,
+ * i.e. the dispatch overhead every task pays on top of its own work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerDispatchBenchmark {
+
+    @Param({"EMAIL", "UNKNOWN"})
+    public String type;
+
+    private TaskHandlerRegistry registry;
+    private TaskContext context;
+
+    @Setup
+    public void setup() {
+        registry = new TaskHandlerRegistry(
+                List.of(new NoopHandler("PDF"), new NoopHandler("EMAIL"), new NoopHandler("WEBHOOK")),
+                new StandardEnvironment());
+        context = new TaskContext(1L, type, 1, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public void lookup(Blackhole bh) {
+        bh.consume(registry.getHandler(type));
+        bh.consume(registry.getBulkhead(type));
+    }
+
+    @Benchmark
+    public void dispatchThroughBulkhead() throws Exception {
+        TaskHandler handler = registry.getHandler(type);
+        TaskBulkhead bulkhead = registry.getBulkhead(type);
+        if (handler != null) {
+            bulkhead.execute(() -> handler.handle(context));
+        } else {
+            bulkhead.execute(() -> { });
+        }
+    }
+
+    private static final class NoopHandler implements TaskHandler {
+
+        private final String type;
+
+        NoopHandler(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public void handle(TaskContext context) {
+        }
+    }
+}
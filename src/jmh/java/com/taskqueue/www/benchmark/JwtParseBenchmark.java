@@ -0,0 +1,38 @@
+package com.taskqueue.www.benchmark;
+
+import com.taskqueue.www.enums.Role;
+import com.taskqueue.www.jwt.JwtUtil;
+import com.taskqueue.www.security.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Runs on every authenticated request in JwtFilter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        token = jwtUtil.generateToken(new CustomUserDetails(7L, "alice", "n/a", Role.USER));
+    }
+
+    @Benchmark
+    public Claims extractClaims() {
+        return jwtUtil.extractClaims(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(new CustomUserDetails(7L, "alice", "n/a", Role.USER));
+    }
+}
@@ -0,0 +1,60 @@
+package com.taskqueue.www.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.handler.PdfTaskHandler;
+import com.taskqueue.www.handler.TaskContext;
+import com.taskqueue.www.repository.GeneratedDocumentRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full PdfTaskHandler run per template, including the write to output/pdfs.
+ * The metadata repository is a stub, so no database time is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfGenerationBenchmark {
+
+    @Param({"invoice", "receipt", "report", "generic"})
+    public String template;
+
+    private PdfTaskHandler handler;
+    private TaskContext context;
+
+    @Setup
+    public void setup() throws Exception {
+        GeneratedDocumentRepository repository = (GeneratedDocumentRepository) Proxy.newProxyInstance(
+                GeneratedDocumentRepository.class.getClassLoader(),
+                new Class<?>[]{GeneratedDocumentRepository.class},
+                (proxy, method, args) -> method.getName().equals("save") ? args[0] : null);
+        handler = new PdfTaskHandler(repository);
+
+        String data = switch (template) {
+            case "invoice" -> "{\"invoiceNumber\":\"INV-42\",\"customerName\":\"Acme\",\"items\":["
+                    + "{\"name\":\"Widget\",\"quantity\":3,\"price\":9.5},"
+                    + "{\"name\":\"Gadget\",\"quantity\":1,\"price\":120.0},"
+                    + "{\"name\":\"Support\",\"quantity\":12,\"price\":45.0}]}";
+            case "receipt" -> "{\"receiptNumber\":\"REC-7\",\"amount\":99.95,\"paymentMethod\":\"Card\","
+                    + "\"description\":\"Annual subscription\"}";
+            case "report" -> "{\"title\":\"Weekly report\",\"summary\":\"All systems nominal.\","
+                    + "\"metrics\":{\"tasks\":\"10234\",\"failures\":\"12\",\"p99\":\"840ms\"},"
+                    + "\"content\":\"Throughput was stable across the week.\"}";
+            default -> "{\"field\":\"value\",\"nested\":{\"a\":1,\"b\":[1,2,3]}}";
+        };
+        JsonNode payload = new ObjectMapper().readTree(
+                "{\"type\":\"PDF\",\"template\":\"" + template + "\",\"data\":" + data + "}");
+        context = new TaskContext(1L, "PDF", 1, payload);
+    }
+
+    @Benchmark
+    public void generate() throws Exception {
+        handler.handle(context);
+    }
+}
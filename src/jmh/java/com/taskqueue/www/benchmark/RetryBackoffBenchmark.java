@@ -0,0 +1,34 @@
+package com.taskqueue.www.benchmark;
+
+import com.taskqueue.www.enums.RetryJitter;
+import com.taskqueue.www.retry.ExponentialBackoffPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryBackoffBenchmark {
+
+    @Param({"1", "3"})
+    public int attempt;
+
+    @Param({"NONE", "DECORRELATED"})
+    public RetryJitter jitter;
+
+    private ExponentialBackoffPolicy policy;
+
+    @Setup
+    public void setUp() {
+        policy = new ExponentialBackoffPolicy("BENCH", 3, 5000, 3, 300000, jitter);
+    }
+
+    @Benchmark
+    public long backoffMs() {
+        return policy.backoffMs(attempt, 15000);
+    }
+}
@@ -0,0 +1,96 @@
+package com.taskqueue.www.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.handler.TaskContext;
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.model.OutboxEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the listener does per record before a handler runs: decode the record
+ * (v2 headers or the legacy v1 envelope), then parse the payload once into a TaskContext.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskMessageCodecBenchmark {
+
+    @Param({"EMAIL", "PDF"})
+    public String type;
+
+    private TaskMessageCodec codec;
+    private OutboxEvent event;
+    private ConsumerRecord<String, String> v2Record;
+    private ConsumerRecord<String, String> v1Record;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        codec = new TaskMessageCodec(mapper);
+
+        String payload = type.equals("PDF")
+                ? "{\"type\":\"PDF\",\"template\":\"invoice\",\"data\":{\"invoiceNumber\":\"INV-42\","
+                    + "\"customerName\":\"Acme\",\"items\":[{\"name\":\"Widget\",\"quantity\":3,\"price\":9.5},"
+                    + "{\"name\":\"Gadget\",\"quantity\":1,\"price\":120.0}]}}"
+                : "{\"type\":\"EMAIL\",\"to\":\"user@example.com\",\"subject\":\"Welcome\","
+                    + "\"body\":\"Thanks for signing up.\"}";
+
+        event = new OutboxEvent();
+        event.setId(1L);
+        event.setTaskId(42L);
+        event.setUserId(7L);
+        event.setTaskType(type);
+        event.setPayload(payload);
+
+        ProducerRecord<String, String> produced = codec.encode("task-topic", "7", event);
+        v2Record = new ConsumerRecord<>("task-topic", 0, 0L, 0L, TimestampType.CREATE_TIME,
+                -1, -1, "7", produced.value(), new RecordHeaders(produced.headers().toArray()), Optional.empty());
+
+        String envelope = mapper.writeValueAsString(Map.of("taskId", 42L, "payload", payload));
+        v1Record = new ConsumerRecord<>("task-topic", 0, 0L, "7", envelope);
+    }
+
+    @Benchmark
+    public ProducerRecord<String, String> encode() {
+        return codec.encode("task-topic", "7", event);
+    }
+
+    @Benchmark
+    public TaskMessage decodeV2() throws Exception {
+        return codec.decode(v2Record);
+    }
+
+    @Benchmark
+    public TaskMessage decodeV1Envelope() throws Exception {
+        return codec.decode(v1Record);
+    }
+
+    // decode + the single payload parse the consumer does before dispatch
+    @Benchmark
+    public TaskContext decodeAndParse() throws Exception {
+        TaskMessage message = codec.decode(v2Record);
+        JsonNode payload = codec.readPayload(message.payload());
+        return new TaskContext(message.taskId(), message.type(), 1, payload);
+    }
+
+    @Benchmark
+    public TaskContext decodeAndParseV1Envelope() throws Exception {
+        TaskMessage message = codec.decode(v1Record);
+        JsonNode payload = codec.readPayload(message.payload());
+        String taskType = payload.has("type") ? payload.get("type").asText() : "DEFAULT";
+        return new TaskContext(message.taskId(), taskType, 1, payload);
+    }
+}
@@ -0,0 +1,129 @@
+package com.taskqueue.www.load;
+
+import com.taskqueue.www.dto.TaskCreateRequestDTO;
+import com.taskqueue.www.enums.Role;
+import com.taskqueue.www.handler.TaskHandler;
+import com.taskqueue.www.security.CustomUserDetails;
+import com.taskqueue.www.service.TaskService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * queue.transport=postgres end to end with no external services: embedded Postgres,
+ * no Kafka, and the LOAD stub handler.
+ *
+ *   mvn -Pload test -Dtest=PostgresTaskTransportIT
+ */
+@SpringBootTest(properties = {
+        "queue.transport=postgres",
+        "queue.postgres.poll-ms=200",
+        "queue.postgres.max-receives=2",
+        "spring.jpa.show-sql=false",
+        "retention.cron=-"})
+class PostgresTaskTransportIT {
+
+    // Stopped by its own shutdown hook, after the cached application context is gone
+    private static EmbeddedPostgres postgres;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @TestConfiguration
+    static class StubHandlers {
+
+        @Bean
+        TaskHandler loadTaskHandler() {
+            return new StubTaskHandler(0, 0, 42);
+        }
+    }
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void taskRunsThroughTheQueueTable() throws Exception {
+        CustomUserDetails user = new CustomUserDetails(1L, "transport-user", null, Role.USER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        Long id = taskService.createTask(new TaskCreateRequestDTO("{\"type\":\"LOAD\"}", null, null)).getId();
+
+        assertEquals("DONE", await(() -> status(id), "DONE"));
+        assertEquals(0L, await(() -> count("SELECT count(*) FROM queue_message WHERE task_id = ?", id), 0L));
+    }
+
+    @Test
+    void messageReceivedTooOftenSendsItsTaskToTheDlq() throws Exception {
+        Long id = jdbcTemplate.queryForObject("""
+                INSERT INTO task (user_id, payload, status, priority, retry_count, created_at, updated_at, version)
+                VALUES (1, '{"type":"LOAD"}', 'PENDING', 'NORMAL', 0, now(), now(), 0)
+                RETURNING id
+                """, Long.class);
+        // Two earlier workers took it and never finished; the next receive is the third
+        jdbcTemplate.update("""
+                INSERT INTO queue_message (task_id, task_type, user_id, payload, visible_at, receive_count, created_at)
+                VALUES (?, 'LOAD', 1, '{"type":"LOAD"}', now(), 2, now())
+                """, id);
+
+        assertEquals("FAILED", await(() -> status(id), "FAILED"));
+        assertEquals(1L, await(() -> count("SELECT count(*) FROM dead_letter_queue WHERE original_task_id = ?", id), 1L));
+        // The message is deleted after the task has been handled, in its own transaction
+        assertEquals(0L, await(() -> count("SELECT count(*) FROM queue_message WHERE task_id = ?", id), 0L));
+    }
+
+    private <T> T await(Supplier<T> probe, T expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        T value;
+        do {
+            value = probe.get();
+            if (expected.equals(value)) {
+                return value;
+            }
+            Thread.sleep(100);
+        } while (System.nanoTime() < deadline);
+        return value;
+    }
+
+    private String status(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM task WHERE id = ?", String.class, id);
+    }
+
+    private long count(String sql, Object... args) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return value != null ? value : 0;
+    }
+}
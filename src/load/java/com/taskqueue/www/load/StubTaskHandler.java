@@ -0,0 +1,46 @@
+package com.taskqueue.www.load;
+
+import com.taskqueue.www.handler.TaskContext;
+import com.taskqueue.www.handler.TaskHandler;
+
+/**
+ * Handler for type LOAD: sleeps for a fixed latency and fails a given share of
+ * attempts. Whether an attempt fails depends only on (seed, taskId, attempt),
+ * so a run is repeatable no matter how work is spread over threads.
+ */
+public class StubTaskHandler implements TaskHandler {
+
+    private final long latencyMs;
+    private final double failureRate;
+    private final long seed;
+
+    public StubTaskHandler(long latencyMs, double failureRate, long seed) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+        this.seed = seed;
+    }
+
+    @Override
+    public String getType() {
+        return "LOAD";
+    }
+
+    @Override
+    public void handle(TaskContext context) throws Exception {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        if (roll(context.taskId(), context.attempt()) < failureRate) {
+            throw new IllegalStateException("Injected failure (attempt " + context.attempt() + ")");
+        }
+    }
+
+    // SplitMix64 finaliser over the inputs, mapped to [0, 1)
+    private double roll(Long taskId, int attempt) {
+        long z = seed ^ (taskId != null ? taskId : 0L) * 0x9E3779B97F4A7C15L ^ attempt * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
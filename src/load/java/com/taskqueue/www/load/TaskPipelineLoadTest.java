@@ -0,0 +1,317 @@
+package com.taskqueue.www.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.enums.Role;
+import com.taskqueue.www.handler.TaskHandler;
+import com.taskqueue.www.jwt.JwtUtil;
+import com.taskqueue.www.security.CustomUserDetails;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * End-to-end load run with no external services: embedded Kafka, embedded Postgres,
+ * and the LOAD stub handler. Each stage submits open-loop at a fixed rate through
+ * POST /api/tasks, waits for every task to finish, and reports one row:
+ * throughput, submit-to-DONE percentiles, outbox lag and DLQ rate.
+ *
+ *   mvn -Pload test -Dload.rates=100,200,400 -Dload.label=$(git rev-parse --short HEAD)
+ *
+ * Rows are appended to load.report (CSV), so curves from different commits line up.
+ */
+@Slf4j
+@ActiveProfiles("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(partitions = 6, topics = "task-topic",
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class TaskPipelineLoadTest {
+
+    // Stopped by its own shutdown hook, after the cached application context is gone
+    private static EmbeddedPostgres postgres;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @TestConfiguration
+    static class StubHandlers {
+
+        @Bean
+        TaskHandler loadTaskHandler(@Value("${load.handler-latency-ms}") long latencyMs,
+                                    @Value("${load.failure-rate}") double failureRate,
+                                    @Value("${load.seed}") long seed) {
+            return new StubTaskHandler(latencyMs, failureRate, seed);
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${load.rates}")
+    private List<Integer> rates;
+
+    @Value("${load.stage-seconds}")
+    private int stageSeconds;
+
+    @Value("${load.users}")
+    private int users;
+
+    @Value("${load.drain-timeout-seconds}")
+    private int drainTimeoutSeconds;
+
+    @Value("${load.label}")
+    private String label;
+
+    @Value("${load.report}")
+    private String reportPath;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    @Test
+    void saturationCurve() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (long u = 1; u <= users; u++) {
+            tokens.add(jwtUtil.generateToken(new CustomUserDetails(u, "load-user-" + u, null, Role.USER)));
+        }
+
+        List<StageResult> results = new ArrayList<>();
+        for (int rate : rates) {
+            StageResult result = runStage(rate, tokens);
+            results.add(result);
+            log.info("{}", result.describe());
+
+            assertEquals(0, result.stuck(), "tasks still unfinished after drain timeout at " + rate + "/s");
+        }
+
+        writeReport(results);
+    }
+
+    /* ================= STAGE ================= */
+
+    private StageResult runStage(int rate, List<String> tokens) throws Exception {
+        ConcurrentLinkedQueue<Long> ids = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger sequence = new AtomicInteger();
+        int total = rate * stageSeconds;
+
+        OutboxSampler sampler = new OutboxSampler();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        scheduler.scheduleAtFixedRate(sampler, 0, 250, TimeUnit.MILLISECONDS);
+
+        // Open loop: submissions follow the clock, not the responses
+        ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        scheduler.scheduleAtFixedRate(() -> {
+            int n = sequence.getAndIncrement();
+            if (n < total) {
+                senders.submit(() -> submit(n, tokens.get(n % tokens.size()), ids, rejected));
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        while (sequence.get() < total) {
+            Thread.sleep(100);
+        }
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.MINUTES);
+
+        long minId = ids.stream().mapToLong(Long::longValue).min().orElse(0);
+        long maxId = ids.stream().mapToLong(Long::longValue).max().orElse(-1);
+        long stuck = awaitDrain(minId, maxId);
+
+        scheduler.shutdownNow();
+        return collect(rate, total, rejected.get(), minId, maxId, stuck, sampler);
+    }
+
+    private void submit(int n, String token, ConcurrentLinkedQueue<Long> ids, AtomicInteger rejected) {
+        try {
+            String payload = objectMapper.writeValueAsString(Map.of("type", "LOAD", "seq", n));
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/tasks"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(Map.of("payload", payload))))
+                    .build();
+
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                rejected.incrementAndGet();
+                return;
+            }
+            JsonNode body = objectMapper.readTree(response.body());
+            ids.add(body.get("data").get("id").asLong());
+        } catch (Exception e) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    // Returns how many tasks are still not DONE/FAILED when the timeout hits
+    private long awaitDrain(long minId, long maxId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        long open;
+        do {
+            open = count("SELECT count(*) FROM task WHERE id BETWEEN ? AND ? AND status NOT IN ('DONE', 'FAILED')",
+                    minId, maxId);
+            if (open == 0) {
+                return 0;
+            }
+            Thread.sleep(500);
+        } while (System.nanoTime() < deadline);
+        return open;
+    }
+
+    private StageResult collect(int rate, int submitted, int rejected, long minId, long maxId,
+                                long stuck, OutboxSampler sampler) {
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT created_at, updated_at FROM task WHERE id BETWEEN ? AND ? AND status = 'DONE'",
+                minId, maxId);
+
+        long[] latencies = new long[rows.size()];
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (int i = 0; i < rows.size(); i++) {
+            LocalDateTime created = ((Timestamp) rows.get(i).get("created_at")).toLocalDateTime();
+            LocalDateTime done = ((Timestamp) rows.get(i).get("updated_at")).toLocalDateTime();
+            latencies[i] = Duration.between(created, done).toMillis();
+            first = first == null || created.isBefore(first) ? created : first;
+            last = last == null || done.isAfter(last) ? done : last;
+        }
+        Arrays.sort(latencies);
+
+        double seconds = first != null ? Math.max(1, Duration.between(first, last).toMillis()) / 1000.0 : 1;
+        long dlq = count("SELECT count(*) FROM dead_letter_queue WHERE original_task_id BETWEEN ? AND ?",
+                minId, maxId);
+        int accepted = submitted - rejected;
+
+        return new StageResult(rate, submitted, rejected, latencies.length, stuck,
+                latencies.length / seconds,
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies.length > 0 ? latencies[latencies.length - 1] : 0,
+                sampler.maxBacklog.get(), sampler.maxAgeMs.get(),
+                accepted > 0 ? (double) dlq / accepted : 0);
+    }
+
+    private long count(String sql, Object... args) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return value != null ? value : 0;
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /* ================= REPORT ================= */
+
+    private void writeReport(List<StageResult> results) throws IOException {
+        Path path = Path.of(reportPath);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        StringBuilder csv = new StringBuilder();
+        if (!Files.exists(path)) {
+            csv.append("label,rate,submitted,rejected,done,stuck,throughput,p50_ms,p90_ms,p99_ms,max_ms,")
+                    .append("outbox_max_backlog,outbox_max_age_ms,dlq_rate\n");
+        }
+        for (StageResult r : results) {
+            csv.append(String.format("%s,%d,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%.4f%n",
+                    label, r.rate(), r.submitted(), r.rejected(), r.done(), r.stuck(), r.throughput(),
+                    r.p50(), r.p90(), r.p99(), r.max(), r.outboxMaxBacklog(), r.outboxMaxAgeMs(), r.dlqRate()));
+        }
+        Files.writeString(path, csv, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("Load report appended to {}", path.toAbsolutePath());
+    }
+
+    private record StageResult(int rate, int submitted, int rejected, int done, long stuck, double throughput,
+                               long p50, long p90, long p99, long max,
+                               long outboxMaxBacklog, long outboxMaxAgeMs, double dlqRate) {
+
+        String describe() {
+            return String.format("rate=%d/s submitted=%d rejected=%d done=%d stuck=%d throughput=%.1f/s "
+                            + "latency p50=%dms p90=%dms p99=%dms max=%dms outbox backlog<=%d age<=%dms dlq=%.2f%%",
+                    rate, submitted, rejected, done, stuck, throughput, p50, p90, p99, max,
+                    outboxMaxBacklog, outboxMaxAgeMs, dlqRate * 100);
+        }
+    }
+
+    // Outbox lag: unsent rows and the age of the oldest one, sampled every 250ms
+    private class OutboxSampler implements Runnable {
+
+        final AtomicLong maxBacklog = new AtomicLong();
+        final AtomicLong maxAgeMs = new AtomicLong();
+
+        @Override
+        public void run() {
+            try {
+                Map<String, Object> row = jdbcTemplate.queryForMap(
+                        "SELECT count(*) AS backlog, min(created_at) AS oldest FROM outbox_event WHERE status <> 'SENT'");
+                maxBacklog.accumulateAndGet(((Number) row.get("backlog")).longValue(), Math::max);
+                if (row.get("oldest") != null) {
+                    LocalDateTime oldest = ((Timestamp) row.get("oldest")).toLocalDateTime();
+                    maxAgeMs.accumulateAndGet(Duration.between(oldest, LocalDateTime.now()).toMillis(), Math::max);
+                }
+            } catch (Exception e) {
+                log.warn("Outbox sample failed: {}", e.getMessage());
+            }
+        }
+    }
+}
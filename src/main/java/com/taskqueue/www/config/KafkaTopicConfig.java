@@ -0,0 +1,51 @@
+package com.taskqueue.www.config;
+
+import com.taskqueue.www.kafka.TopicRouter;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+@Configuration
+@ConditionalOnProperty(name = "queue.transport", havingValue = "kafka", matchIfMissing = true)
+public class KafkaTopicConfig {
+
+    /**
+     * Created (or grown) on startup by KafkaAdmin. Partition count caps useful
+     * listener concurrency across the whole consumer group.
+     */
+    @Bean
+    public NewTopic taskTopic(@Value("${kafka.topic-partitions:6}") int partitions,
+                              @Value("${kafka.topic-replicas:1}") short replicas) {
+        return TopicBuilder.name(TopicRouter.DEFAULT_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    /**
+     * Lane and per-type topics for the configured kafka.routing.mode. A lane topic gets
+     * at least as many partitions as its listener concurrency, which is its weight.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics routedTopics(TopicRouter topicRouter,
+                                             @Value("${kafka.topic-partitions:6}") int partitions,
+                                             @Value("${kafka.topic-replicas:1}") short replicas,
+                                             @Value("${kafka.routing.lanes.high.concurrency:3}") int highConcurrency,
+                                             @Value("${kafka.routing.lanes.low.concurrency:1}") int lowConcurrency) {
+        return new KafkaAdmin.NewTopics(topicRouter.allTopics().stream()
+                .filter(name -> !name.equals(TopicRouter.DEFAULT_TOPIC))
+                .map(name -> TopicBuilder.name(name)
+                        .partitions(switch (name) {
+                            case TopicRouter.HIGH_TOPIC -> Math.max(partitions, highConcurrency);
+                            case TopicRouter.LOW_TOPIC -> Math.max(partitions, lowConcurrency);
+                            default -> partitions;
+                        })
+                        .replicas(replicas)
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
+}
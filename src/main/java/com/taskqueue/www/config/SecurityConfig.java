@@ -43,6 +43,9 @@ public class SecurityConfig {
                 .anonymous(anonymous -> anonymous.disable()) // 🔥 THIS IS THE FIX
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Queue depths, error rates and task types are internal; scrape with an admin token
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(ex -> ex
@@ -1,14 +1,31 @@
 package com.taskqueue.www.controller;
 
+import com.taskqueue.www.dto.ApiResponse;
+import com.taskqueue.www.dto.RecordingDTO;
+import com.taskqueue.www.dto.UserQueueStatsDTO;
+import com.taskqueue.www.kafka.FairTaskScheduler;
+import com.taskqueue.www.metrics.FlightRecordings;
 import com.taskqueue.www.service.AdminService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
@@ -16,6 +33,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminController {
 
     private final AdminService adminService;
+    private final FairTaskScheduler fairTaskScheduler;
+    private final FlightRecordings flightRecordings;
 
     @PutMapping("/users/{id}/promote")
     public ResponseEntity<?> promote(@PathVariable Long id) {
@@ -28,4 +47,46 @@ public class AdminController {
         adminService.demoteToUser(id);
         return ResponseEntity.ok("User demoted to USER");
     }
+
+    // Per-user queue depth and in-flight count on this node, deepest first
+    @GetMapping("/queues/users")
+    public ResponseEntity<ApiResponse<List<UserQueueStatsDTO>>> userQueues() {
+        return ResponseEntity.ok(ApiResponse.success(fairTaskScheduler.snapshot()));
+    }
+
+    /* ================= JFR RECORDINGS ================= */
+
+    // settings: "default" (low overhead) or "profile"; the file is written when the recording stops
+    @PostMapping("/recordings")
+    public ResponseEntity<ApiResponse<RecordingDTO>> startRecording(
+            @RequestParam(defaultValue = "default") String settings,
+            @RequestParam(required = false) Long durationSeconds) throws IOException {
+        return ResponseEntity.ok(ApiResponse.success("Recording started",
+                flightRecordings.start(settings, durationSeconds)));
+    }
+
+    @GetMapping("/recordings")
+    public ResponseEntity<ApiResponse<List<RecordingDTO>>> recordings() {
+        return ResponseEntity.ok(ApiResponse.success(flightRecordings.list()));
+    }
+
+    @PostMapping("/recordings/{id}/stop")
+    public ResponseEntity<ApiResponse<RecordingDTO>> stopRecording(@PathVariable long id) {
+        return ResponseEntity.ok(ApiResponse.success("Recording stopped", flightRecordings.stop(id)));
+    }
+
+    @GetMapping("/recordings/{id}/file")
+    public ResponseEntity<Resource> downloadRecording(@PathVariable long id) {
+        Path file = flightRecordings.file(id);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file));
+    }
+
+    @DeleteMapping("/recordings/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteRecording(@PathVariable long id) throws IOException {
+        flightRecordings.delete(id);
+        return ResponseEntity.ok(ApiResponse.success("Recording deleted", null));
+    }
 }
@@ -1,16 +1,20 @@
 package com.taskqueue.www.controller;
 
 import com.taskqueue.www.dto.*;
+import com.taskqueue.www.service.DLQRedriveService;
 import com.taskqueue.www.service.DLQService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @PreAuthorize("hasRole('ADMIN')")
 @RestController
 @RequestMapping("/api/dlq")
@@ -18,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 public class DLQController {
 
     private final DLQService dlqService;
+    private final DLQRedriveService redriveService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Page<DLQResponseDTO>>> getAllDLQ(
@@ -101,20 +106,90 @@ public class DLQController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /* ================= BULK RE-DRIVE ================= */
+
+    // Bulk retries run as a background job; poll /redrive/{jobId} for progress
     @PutMapping("/retry-all")
-    public ResponseEntity<ApiResponse<BulkRetryResponseDTO>> retryAllFailed(
+    public ResponseEntity<ApiResponse<RedriveJobDTO>> retryAllFailed(
             @RequestBody(required = false) RetryRequestDTO request) {
 
-        BulkRetryResponseDTO result = dlqService.retryAllFailed(request);
-        return ResponseEntity.ok(ApiResponse.success(result));
+        return startRedrive("FAILED", request);
     }
 
     @PutMapping("/retry-all/status/{status}")
-    public ResponseEntity<ApiResponse<BulkRetryResponseDTO>> retryByStatus(
+    public ResponseEntity<ApiResponse<RedriveJobDTO>> retryByStatus(
             @PathVariable String status,
             @RequestBody(required = false) RetryRequestDTO request) {
 
-        BulkRetryResponseDTO result = dlqService.retryByStatus(status, request);
-        return ResponseEntity.ok(ApiResponse.success(result));
+        return startRedrive(status, request);
+    }
+
+    @GetMapping("/redrive")
+    public ResponseEntity<ApiResponse<List<RedriveJobDTO>>> redriveJobs() {
+        return ResponseEntity.ok(ApiResponse.success(redriveService.list()));
+    }
+
+    @GetMapping("/redrive/{jobId}")
+    public ResponseEntity<ApiResponse<RedriveJobDTO>> redriveJob(@PathVariable String jobId) {
+        return redriveService.get(jobId)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/redrive/{jobId}/cancel")
+    public ResponseEntity<ApiResponse<RedriveJobDTO>> cancelRedrive(@PathVariable String jobId) {
+        return redriveService.cancel(jobId)
+                .map(job -> ResponseEntity.ok(ApiResponse.success("Re-drive cancellation requested", job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /* ================= ERROR GROUPS ================= */
+
+    // Entries grouped by error fingerprint, largest group first
+    @GetMapping("/groups")
+    public ResponseEntity<ApiResponse<Page<DLQGroupDTO>>> getGroups(
+            @RequestParam(defaultValue = "FAILED") String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Page<DLQGroupDTO> groups = dlqService.getGroups(status, PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.success(groups));
+    }
+
+    @PutMapping("/groups/{fingerprint}/retry")
+    public ResponseEntity<ApiResponse<RedriveJobDTO>> retryGroup(
+            @PathVariable String fingerprint,
+            @RequestBody(required = false) RetryRequestDTO request) {
+
+        RedriveJobDTO job = redriveService.start("FAILED", fingerprint,
+                request != null ? request.getResolution() : null);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Group retry started", job));
+    }
+
+    @PutMapping("/groups/{fingerprint}/resolve")
+    public ResponseEntity<ApiResponse<Integer>> resolveGroup(
+            @PathVariable String fingerprint,
+            @RequestBody(required = false) RetryRequestDTO request) {
+
+        int resolved = dlqService.resolveByFingerprint(fingerprint,
+                request != null ? request.getResolution() : null);
+        return ResponseEntity.ok(ApiResponse.success("DLQ items marked as resolved", resolved));
+    }
+
+    @DeleteMapping("/groups/{fingerprint}")
+    public ResponseEntity<ApiResponse<Integer>> deleteGroup(
+            @PathVariable String fingerprint,
+            @RequestParam(defaultValue = "FAILED") String status) {
+
+        int deleted = dlqService.deleteByFingerprint(fingerprint, status);
+        return ResponseEntity.ok(ApiResponse.success("DLQ items deleted", deleted));
+    }
+
+    private ResponseEntity<ApiResponse<RedriveJobDTO>> startRedrive(String status, RetryRequestDTO request) {
+        RedriveJobDTO job = redriveService.start(status, null,
+                request != null ? request.getResolution() : null);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Bulk retry started", job));
     }
 }
\ No newline at end of file
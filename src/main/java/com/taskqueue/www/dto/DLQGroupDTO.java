@@ -0,0 +1,20 @@
+package com.taskqueue.www.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DLQGroupDTO {
+    private String fingerprint;   // null groups entries written before fingerprinting
+    private String taskType;
+    private String errorClass;
+    private long count;
+    private LocalDateTime firstFailedAt;
+    private LocalDateTime lastFailedAt;
+    private String sampleError;
+}
@@ -18,4 +18,7 @@ public class DLQResponseDTO {
     private LocalDateTime failedAt;
     private String status;
     private String resolution;
+    private String taskType;
+    private String errorClass;
+    private String fingerprint;
 }
\ No newline at end of file
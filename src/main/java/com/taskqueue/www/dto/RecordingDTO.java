@@ -0,0 +1,19 @@
+package com.taskqueue.www.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecordingDTO {
+    private long id;
+    private String name;
+    private String state;        // NEW, RUNNING, STOPPED, CLOSED
+    private Instant startTime;
+    private Long maxDurationSeconds;
+    private String file;         // where the recording is dumped when it stops
+}
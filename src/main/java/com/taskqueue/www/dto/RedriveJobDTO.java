@@ -0,0 +1,23 @@
+package com.taskqueue.www.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RedriveJobDTO {
+    private String id;
+    private String dlqStatus;    // DLQ rows being re-driven
+    private String fingerprint;  // only rows in this group, null = all
+    private String state;        // QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    private long total;          // matching rows when the job started
+    private long requeued;
+    private Long lastDlqId;      // keyset position
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String message;
+}
@@ -1,5 +1,6 @@
 package com.taskqueue.www.dto;
 
+import com.taskqueue.www.enums.TaskPriority;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,4 +10,6 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class TaskCreateRequestDTO {
     private String payload;
+    private TaskPriority priority; // optional, defaults to NORMAL
+    private Integer maxRetries;    // optional, defaults to the type's retry policy
 }
\ No newline at end of file
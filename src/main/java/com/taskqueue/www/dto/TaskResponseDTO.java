@@ -1,5 +1,6 @@
 package com.taskqueue.www.dto;
 
+import com.taskqueue.www.enums.TaskPriority;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,5 +12,6 @@ public class TaskResponseDTO {
     private Long id;
     private String payload;
     private String status;
+    private TaskPriority priority;
     private OutboxStatusDTO outboxStatus;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.taskqueue.www.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserQueueStatsDTO {
+    private Long userId;
+    private int queued;   // waiting in the fair scheduler on this node
+    private int inFlight; // handed to the executor
+    private int weight;
+}
@@ -0,0 +1,7 @@
+package com.taskqueue.www.enums;
+
+public enum FailureKind {
+    PERMANENT, // same input fails the same way: skip retries, straight to DLQ
+    TRANSIENT, // retry per the type's RetryPolicy
+    THROTTLED  // the dependency asked us to back off: retry after its Retry-After
+}
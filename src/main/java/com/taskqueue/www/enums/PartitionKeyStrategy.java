@@ -0,0 +1,8 @@
+package com.taskqueue.www.enums;
+
+public enum PartitionKeyStrategy {
+    TASK_ID,    // spreads load evenly, keeps each task's retries on one partition
+    USER_ID,    // per-user ordering
+    TASK_TYPE,  // per-type affinity
+    NONE        // no key, producer picks the partition
+}
@@ -0,0 +1,7 @@
+package com.taskqueue.www.enums;
+
+public enum RetryJitter {
+    NONE,         // base * multiplier^(n-1), everyone retries in lockstep
+    FULL,         // uniform in [0, exponential delay]
+    DECORRELATED  // uniform in [base, previous delay * multiplier], see ExponentialBackoffPolicy
+}
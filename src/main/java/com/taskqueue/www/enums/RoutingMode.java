@@ -0,0 +1,7 @@
+package com.taskqueue.www.enums;
+
+public enum RoutingMode {
+    SINGLE,   // everything on task-topic
+    PRIORITY, // task-topic-high / task-topic / task-topic-low
+    TYPE      // task-topic-<type>, workers pick the types they consume
+}
@@ -0,0 +1,7 @@
+package com.taskqueue.www.enums;
+
+public enum TaskPriority {
+    HIGH,   // interactive work, own lane in PRIORITY routing
+    NORMAL,
+    LOW     // bulk backfills
+}
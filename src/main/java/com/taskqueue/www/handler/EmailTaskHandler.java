@@ -1,7 +1,7 @@
 package com.taskqueue.www.handler;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,10 +17,10 @@ import java.util.List;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@HandlerLimits(maxConcurrency = 16, timeoutMs = 30000, ratePerSecond = 20)
 public class EmailTaskHandler implements TaskHandler {
 
     private final JavaMailSender mailSender;
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
     public String getType() {
@@ -28,17 +28,28 @@ public class EmailTaskHandler implements TaskHandler {
     }
 
     @Override
-    public void handle(String data) throws Exception {
+    public PayloadSchema payloadSchema() {
+        return PayloadSchema.builder()
+                .required("to", JsonNodeType.ARRAY).minItems("to", 1).itemsMatch("to", "^[^@]+@[^@]+$")
+                .required("subject")
+                .required("body")
+                .optional("from", JsonNodeType.STRING)
+                .optionalFlag("html")
+                .build();
+    }
+
+    @Override
+    public void handle(TaskContext context) throws Exception {
 
-        JsonNode json = objectMapper.readTree(data);
+        JsonNode json = context.payload();
 
         List<String> to = readList(json, "to");
         if (to.isEmpty()) {
             throw new IllegalArgumentException("EMAIL task must contain at least one recipient");
         }
 
-        String subject = json.get("subject").asText();
-        String body = json.get("body").asText();
+        String subject = requireText(json, "subject");
+        String body = requireText(json, "body");
 
         String from = json.has("from")
                 ? json.get("from").asText()
@@ -63,6 +74,13 @@ public class EmailTaskHandler implements TaskHandler {
         }
     }
 
+    private String requireText(JsonNode json, String field) {
+        if (!json.hasNonNull(field)) {
+            throw new IllegalArgumentException("EMAIL task must contain '" + field + "'");
+        }
+        return json.get(field).asText();
+    }
+
     private List<String> readList(JsonNode json, String field) {
         if (!json.has(field) || !json.get(field).isArray()) {
             return List.of();
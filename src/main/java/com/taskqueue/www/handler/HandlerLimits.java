@@ -0,0 +1,27 @@
+package com.taskqueue.www.handler;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the bulkhead a handler's type runs in. Each value can be overridden
+ * per type in config, e.g. handlers.PDF.max-concurrency=8.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HandlerLimits {
+
+    // Handlers of this type running at once
+    int maxConcurrency() default 8;
+
+    // Tasks allowed to wait for a slot before the type counts as saturated
+    int queueCapacity() default 100;
+
+    // Per-attempt limit; the attempt fails (and is retried) when exceeded
+    long timeoutMs() default 60000;
+
+    // Token-bucket rate, 0 = unlimited
+    double ratePerSecond() default 0;
+}
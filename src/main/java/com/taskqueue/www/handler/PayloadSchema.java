@@ -0,0 +1,202 @@
+package com.taskqueue.www.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shape of a handler's payload, checked when a task is submitted. The builder
+ * compiles every rule (patterns included) into a flat list of checks once; the
+ * registry keeps one instance per type, so validation is just running the list.
+ *
+ *   PayloadSchema.builder()
+ *           .required("url", JsonNodeType.STRING).matches("url", "^https?://\\S+$")
+ *           .optional("method", JsonNodeType.STRING).oneOf("method", "GET", "POST")
+ *           .build();
+ */
+public final class PayloadSchema {
+
+    // No constraints beyond "a JSON object"
+    public static final PayloadSchema ANY = new PayloadSchema(List.of());
+
+    @FunctionalInterface
+    private interface Check {
+        void apply(JsonNode payload, List<String> violations);
+    }
+
+    private final List<Check> checks;
+
+    private PayloadSchema(List<Check> checks) {
+        this.checks = checks;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Every violation, not just the first, so the client can fix the payload in one go
+    public List<String> validate(JsonNode payload) {
+        if (payload == null || !payload.isObject()) {
+            return List.of("payload must be a JSON object");
+        }
+        List<String> violations = new ArrayList<>();
+        for (Check check : checks) {
+            check.apply(payload, violations);
+        }
+        return violations;
+    }
+
+    public static final class Builder {
+
+        private static final Set<String> FLAG_TEXT = Set.of("true", "false");
+
+        private final List<Check> checks = new ArrayList<>();
+
+        public Builder required(String field, JsonNodeType type) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value == null || value.isNull()) {
+                    violations.add("'" + field + "' is required");
+                } else if (value.getNodeType() != type) {
+                    violations.add("'" + field + "' must be " + describe(type));
+                }
+            });
+            return this;
+        }
+
+        // Any JSON type, for fields the handler reads with asText()
+        public Builder required(String field) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value == null || value.isNull()) {
+                    violations.add("'" + field + "' is required");
+                }
+            });
+            return this;
+        }
+
+        public Builder optional(String field, JsonNodeType type) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value != null && !value.isNull() && value.getNodeType() != type) {
+                    violations.add("'" + field + "' must be " + describe(type));
+                }
+            });
+            return this;
+        }
+
+        // A JSON boolean, or a number or "true"/"false", which JsonNode.asBoolean() also reads
+        public Builder optionalFlag(String field) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value != null && !value.isNull() && !value.isBoolean() && !value.isNumber()
+                        && !(value.isTextual() && FLAG_TEXT.contains(value.asText()))) {
+                    violations.add("'" + field + "' must be true or false");
+                }
+            });
+            return this;
+        }
+
+        public Builder nonBlank(String field) {
+            return whenText(field, (value, violations) -> {
+                if (value.isBlank()) {
+                    violations.add("'" + field + "' must not be blank");
+                }
+            });
+        }
+
+        public Builder matches(String field, String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            return whenText(field, (value, violations) -> {
+                if (!pattern.matcher(value).matches()) {
+                    violations.add("'" + field + "' is not valid");
+                }
+            });
+        }
+
+        public Builder oneOf(String field, String... allowed) {
+            Set<String> values = Set.of(allowed);
+            String listed = Arrays.stream(allowed).collect(Collectors.joining(", "));
+            return whenText(field, (value, violations) -> {
+                if (!values.contains(value)) {
+                    violations.add("'" + field + "' must be one of " + listed);
+                }
+            });
+        }
+
+        public Builder oneOfIgnoringCase(String field, String... allowed) {
+            Set<String> values = Arrays.stream(allowed).map(v -> v.toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+            String listed = String.join(", ", allowed);
+            return whenText(field, (value, violations) -> {
+                if (!values.contains(value.toUpperCase(Locale.ROOT))) {
+                    violations.add("'" + field + "' must be one of " + listed);
+                }
+            });
+        }
+
+        public Builder minItems(String field, int min) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value != null && value.isArray() && value.size() < min) {
+                    violations.add("'" + field + "' must have at least " + min + " item(s)");
+                }
+            });
+            return this;
+        }
+
+        // Every element of the array must be a string matching regex
+        public Builder itemsMatch(String field, String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value == null || !value.isArray()) {
+                    return;
+                }
+                for (int i = 0; i < value.size(); i++) {
+                    JsonNode item = value.get(i);
+                    if (!item.isTextual() || !pattern.matcher(item.asText()).matches()) {
+                        violations.add("'" + field + "[" + i + "]' is not valid");
+                    }
+                }
+            });
+            return this;
+        }
+
+        public PayloadSchema build() {
+            return new PayloadSchema(List.copyOf(checks));
+        }
+
+        private interface TextCheck {
+            void apply(String value, List<String> violations);
+        }
+
+        // Text rules only run on values that are present and textual; required/optional report the rest
+        private Builder whenText(String field, TextCheck check) {
+            checks.add((payload, violations) -> {
+                JsonNode value = payload.get(field);
+                if (value != null && value.isTextual()) {
+                    check.apply(value.asText(), violations);
+                }
+            });
+            return this;
+        }
+
+        private static String describe(JsonNodeType type) {
+            return switch (type) {
+                case STRING -> "a string";
+                case OBJECT -> "an object";
+                case ARRAY -> "an array";
+                case NUMBER -> "a number";
+                case BOOLEAN -> "a boolean";
+                default -> type.name().toLowerCase();
+            };
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.taskqueue.www.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rejects payloads at submission, before they cost a task row, an outbox row and
+ * a broker round trip. Failures surface as IllegalArgumentException (HTTP 400).
+ */
+@Component
+@RequiredArgsConstructor
+public class PayloadValidator {
+
+    private final ObjectMapper objectMapper;
+    private final TaskHandlerRegistry handlerRegistry;
+
+    public void validate(String payload) {
+        if (payload == null || payload.isBlank()) {
+            throw new IllegalArgumentException("Task payload is required");
+        }
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Task payload is not valid JSON: " + e.getOriginalMessage());
+        }
+
+        String type = node.hasNonNull("type") ? node.get("type").asText() : "DEFAULT";
+        List<String> violations = handlerRegistry.getSchema(type).validate(node);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Invalid " + type + " payload: " + String.join("; ", violations));
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.taskqueue.www.handler;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.layout.Document;
@@ -27,9 +27,9 @@ import java.time.format.DateTimeFormatter;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@HandlerLimits(maxConcurrency = 4, queueCapacity = 50, timeoutMs = 120000)
 public class PdfTaskHandler implements TaskHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
 //    private final PdfStorageService storageService;
     private final GeneratedDocumentRepository documentRepository;
 
@@ -41,11 +41,25 @@ public class PdfTaskHandler implements TaskHandler {
     }
 
     @Override
-    public void handle(String data) throws Exception {
-        JsonNode json = objectMapper.readTree(data);
+    public PayloadSchema payloadSchema() {
+        return PayloadSchema.builder()
+                .required("template", JsonNodeType.STRING).nonBlank("template")
+                .matches("template", "^[A-Za-z0-9_-]+$") // becomes part of the file name
+                .required("data", JsonNodeType.OBJECT)
+                .build();
+    }
+
+    @Override
+    public void handle(TaskContext context) throws Exception {
+        JsonNode json = context.payload();
+        if (!json.hasNonNull("template")) {
+            throw new IllegalArgumentException("PDF task must contain 'template'");
+        }
         String template = json.get("template").asText();
         JsonNode documentData = json.get("data");
-        Long taskId = json.has("taskId") ? json.get("taskId").asLong() : null;
+        Long taskId = context.taskId() != null
+                ? context.taskId()
+                : json.has("taskId") ? json.get("taskId").asLong() : null;
 
         log.info("Generating PDF with template: {}", template);
 
@@ -0,0 +1,144 @@
+package com.taskqueue.www.handler;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Isolated execution lane for one task type: a cap on running tasks, a bounded
+ * number of waiting tasks, an optional rate limit and a per-attempt timeout.
+ * A flood of one type fills only its own lane.
+ * <p>
+ * Work runs on the calling thread, so ASYNC mode keeps its virtual threads. The
+ * timeout interrupts that thread; a slot is only given back once the work has
+ * actually returned, so a handler that ignores the interrupt keeps counting
+ * against the cap.
+ */
+@Slf4j
+public class TaskBulkhead {
+
+    @FunctionalInterface
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    @Getter
+    private final String type;
+    @Getter
+    private final int maxConcurrency;
+    @Getter
+    private final long timeoutMs;
+
+    private final Semaphore admission;   // running + waiting
+    private final Semaphore slots;       // running
+    private final TokenBucket rateLimiter;
+    private final ScheduledThreadPoolExecutor deadlines;
+
+    public TaskBulkhead(String type, int maxConcurrency, int queueCapacity, long timeoutMs, double ratePerSecond) {
+        this.type = type;
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutMs = timeoutMs;
+        this.admission = new Semaphore(maxConcurrency + queueCapacity);
+        this.slots = new Semaphore(maxConcurrency);
+        this.rateLimiter = ratePerSecond > 0 ? new TokenBucket(ratePerSecond) : null;
+
+        this.deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "task-" + type.toLowerCase() + "-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        // Most work finishes in time; don't keep its cancelled deadline queued until it would have fired
+        this.deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs the work in this lane on the calling thread. Blocks while the lane is full.
+     * Exceptions thrown by the work are rethrown unchanged; work that outlives the
+     * timeout is interrupted and fails with a TimeoutException once it returns.
+     */
+    public void execute(Work work) throws Exception {
+        admission.acquire();
+        try {
+            slots.acquire();
+            try {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                runWithDeadline(work);
+            } finally {
+                slots.release();
+            }
+        } finally {
+            admission.release();
+        }
+    }
+
+    private void runWithDeadline(Work work) throws Exception {
+        Deadline deadline = new Deadline(Thread.currentThread());
+        ScheduledFuture<?> timer = deadlines.schedule(deadline, timeoutMs, TimeUnit.MILLISECONDS);
+        Exception failure = null;
+        try {
+            work.run();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            timer.cancel(false);
+        }
+
+        if (deadline.finish()) {
+            // The interrupt was ours; don't leak it into whatever this thread runs next
+            Thread.interrupted();
+            TimeoutException timeout = new TimeoutException(
+                    type + " task exceeded its " + timeoutMs + "ms timeout");
+            if (failure != null) {
+                timeout.addSuppressed(failure);
+            }
+            throw timeout;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public boolean isSaturated() {
+        return admission.availablePermits() == 0;
+    }
+
+    public int running() {
+        return maxConcurrency - slots.availablePermits();
+    }
+
+    public void shutdown() {
+        deadlines.shutdownNow();
+    }
+
+    // Interrupts the worker at most once, and never after it has finished
+    private static final class Deadline implements Runnable {
+
+        private final Thread worker;
+        private boolean finished;
+        private boolean expired;
+
+        Deadline(Thread worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!finished) {
+                expired = true;
+                worker.interrupt();
+            }
+        }
+
+        synchronized boolean finish() {
+            finished = true;
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.taskqueue.www.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Everything a handler gets for one attempt. The payload is parsed once by the
+ * consumer and shared, so handlers never call readTree themselves.
+ *
+ * @param taskId  null when the handler is called through the legacy string method
+ * @param attempt 1 for the first run, incremented on every retry
+ */
+public record TaskContext(Long taskId, String type, int attempt, JsonNode payload) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * For callers that only have the raw JSON (the legacy {@link TaskHandler#handle(String)} path).
+     */
+    public static TaskContext parse(String type, String data) throws Exception {
+        JsonNode payload = MAPPER.readTree(data);
+        Long taskId = payload.has("taskId") ? payload.get("taskId").asLong() : null;
+        return new TaskContext(taskId, type, 1, payload);
+    }
+}
@@ -2,5 +2,16 @@ package com.taskqueue.www.handler;
 
 public interface TaskHandler {
     String getType();
-    void handle(String data) throws Exception;
+
+    void handle(TaskContext context) throws Exception;
+
+    // Checked on submission; built once per type by TaskHandlerRegistry
+    default PayloadSchema payloadSchema() {
+        return PayloadSchema.ANY;
+    }
+
+    // Adapter for callers holding raw JSON; parses and delegates
+    default void handle(String data) throws Exception {
+        handle(TaskContext.parse(getType(), data));
+    }
 }
@@ -1,6 +1,10 @@
 package com.taskqueue.www.handler;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -11,13 +15,29 @@ import java.util.Map;
 @Component
 public class TaskHandlerRegistry {
 
+    private static final String DEFAULT_TYPE = "DEFAULT";
+
     private final Map<String, TaskHandler> handlers = new HashMap<>();
+    private final Map<String, TaskBulkhead> bulkheads = new HashMap<>();
+    private final Map<String, PayloadSchema> schemas = new HashMap<>();
+    private final Environment environment;
 
-    public TaskHandlerRegistry(List<TaskHandler> handlerList) {
+    public TaskHandlerRegistry(List<TaskHandler> handlerList, Environment environment) {
+        this.environment = environment;
         for (TaskHandler handler : handlerList) {
             handlers.put(handler.getType(), handler);
-            log.info("Registered handler for type: {}", handler.getType());
+            schemas.put(handler.getType(), handler.payloadSchema());
+
+            HandlerLimits limits = AnnotationUtils.findAnnotation(
+                    AopUtils.getTargetClass(handler), HandlerLimits.class);
+            TaskBulkhead bulkhead = createBulkhead(handler.getType(), limits);
+            bulkheads.put(handler.getType(), bulkhead);
+
+            log.info("Registered handler for type: {} (concurrency={}, timeout={}ms)",
+                    handler.getType(), bulkhead.getMaxConcurrency(), bulkhead.getTimeoutMs());
         }
+        // Unknown types share one lane so they cannot crowd out registered ones
+        bulkheads.put(DEFAULT_TYPE, createBulkhead(DEFAULT_TYPE, null));
     }
 
     public TaskHandler getHandler(String type) {
@@ -27,4 +47,33 @@ public class TaskHandlerRegistry {
     public boolean hasHandler(String type) {
         return handlers.containsKey(type);
     }
-}
\ No newline at end of file
+
+    // Unknown types run the default processing, which takes any object
+    public PayloadSchema getSchema(String type) {
+        return schemas.getOrDefault(type, PayloadSchema.ANY);
+    }
+
+    public TaskBulkhead getBulkhead(String type) {
+        return bulkheads.getOrDefault(type, bulkheads.get(DEFAULT_TYPE));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(TaskBulkhead::shutdown);
+    }
+
+    // Annotation values with handlers.<TYPE>.* overrides from config
+    private TaskBulkhead createBulkhead(String type, HandlerLimits limits) {
+        String prefix = "handlers." + type + ".";
+        return new TaskBulkhead(
+                type,
+                environment.getProperty(prefix + "max-concurrency", Integer.class,
+                        limits != null ? limits.maxConcurrency() : 8),
+                environment.getProperty(prefix + "queue-capacity", Integer.class,
+                        limits != null ? limits.queueCapacity() : 100),
+                environment.getProperty(prefix + "timeout-ms", Long.class,
+                        limits != null ? limits.timeoutMs() : 60000L),
+                environment.getProperty(prefix + "rate-per-second", Double.class,
+                        limits != null ? limits.ratePerSecond() : 0d));
+    }
+}
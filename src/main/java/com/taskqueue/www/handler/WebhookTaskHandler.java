@@ -1,20 +1,22 @@
 package com.taskqueue.www.handler;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Locale;
+
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@HandlerLimits(maxConcurrency = 64, queueCapacity = 500, timeoutMs = 15000)
 public class WebhookTaskHandler implements TaskHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final RestTemplate restTemplate;
 
     @Override
@@ -23,10 +25,22 @@ public class WebhookTaskHandler implements TaskHandler {
     }
 
     @Override
-    public void handle(String data) throws Exception {
-        JsonNode json = objectMapper.readTree(data);
+    public PayloadSchema payloadSchema() {
+        return PayloadSchema.builder()
+                .required("url", JsonNodeType.STRING).matches("url", "^https?://\\S+$")
+                .optional("method", JsonNodeType.STRING)
+                .oneOfIgnoringCase("method", "GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS", "TRACE")
+                .build();
+    }
+
+    @Override
+    public void handle(TaskContext context) throws Exception {
+        JsonNode json = context.payload();
+        if (!json.hasNonNull("url")) {
+            throw new IllegalArgumentException("WEBHOOK task must contain 'url'");
+        }
         String url = json.get("url").asText();
-        String method = json.has("method") ? json.get("method").asText() : "POST";
+        String method = json.has("method") ? json.get("method").asText().toUpperCase(Locale.ROOT) : "POST";
         JsonNode payload = json.has("data") ? json.get("data") : null;
 
         log.info("Calling webhook: {} {}", method, url);
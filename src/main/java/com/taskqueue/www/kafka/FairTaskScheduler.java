@@ -0,0 +1,244 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.dto.UserQueueStatsDTO;
+import com.taskqueue.www.enums.TaskPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair-share dispatch between users in front of handler execution (listener mode ASYNC).
+ *
+ * Every user gets a virtual queue per priority lane; queues are served by deficit
+ * round-robin, so per round each backlogged queue starts up to
+ * kafka.fair.weights.<userId> (default 1) times kafka.routing.lanes.<lane>.weight
+ * (high 4, normal 2, low 1) tasks. A user never has more than
+ * kafka.fair.per-user-max-in-flight tasks running across its lanes, and all users
+ * together at most kafka.fair.max-in-flight. A tenant with 100k queued tasks therefore
+ * takes its share of the workers, not all of them, and within a share HIGH work starts
+ * four times as often as LOW work.
+ *
+ * Records without a user header share the queues of user 0.
+ */
+@Slf4j
+@Component
+public class FairTaskScheduler {
+
+    public static final long UNKNOWN_USER = 0L;
+
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final int perUserMaxInFlight;
+    private final Map<TaskPriority, Integer> laneWeights = new EnumMap<>(TaskPriority.class);
+    private final Environment environment;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<QueueKey, LaneQueue> queues = new HashMap<>();
+    private final Map<Long, Integer> userInFlight = new HashMap<>();
+    private final Deque<LaneQueue> active = new ArrayDeque<>(); // backlogged queues, round-robin order
+    private int inFlight;
+
+    public FairTaskScheduler(@Value("${kafka.fair.enabled:true}") boolean enabled,
+                             @Value("${kafka.fair.max-in-flight:512}") int maxInFlight,
+                             @Value("${kafka.fair.per-user-max-in-flight:32}") int perUserMaxInFlight,
+                             @Value("${kafka.routing.lanes.high.weight:4}") int highWeight,
+                             @Value("${kafka.routing.lanes.normal.weight:2}") int normalWeight,
+                             @Value("${kafka.routing.lanes.low.weight:1}") int lowWeight,
+                             Environment environment) {
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.perUserMaxInFlight = perUserMaxInFlight;
+        this.laneWeights.put(TaskPriority.HIGH, Math.max(1, highWeight));
+        this.laneWeights.put(TaskPriority.NORMAL, Math.max(1, normalWeight));
+        this.laneWeights.put(TaskPriority.LOW, Math.max(1, lowWeight));
+        this.environment = environment;
+    }
+
+    /**
+     * Executor that queues work under the given user and lane and hands it to
+     * {@code target} when that queue's turn comes. Pass-through when fair scheduling
+     * is disabled.
+     */
+    public Executor executorFor(Long userId, TaskPriority lane, Executor target) {
+        if (!enabled) {
+            return target;
+        }
+        QueueKey key = new QueueKey(userId != null ? userId : UNKNOWN_USER,
+                lane != null ? lane : TaskPriority.NORMAL);
+        return work -> enqueue(key, work, target);
+    }
+
+    public List<UserQueueStatsDTO> snapshot() {
+        lock.lock();
+        try {
+            Map<Long, Integer> queued = new HashMap<>();
+            queues.values().forEach(q -> queued.merge(q.key.userId(), q.pending.size(), Integer::sum));
+            return queued.entrySet().stream()
+                    .map(e -> new UserQueueStatsDTO(e.getKey(), e.getValue(),
+                            userInFlight.getOrDefault(e.getKey(), 0), userWeight(e.getKey())))
+                    .sorted(Comparator.comparingInt(UserQueueStatsDTO::getQueued).reversed())
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queues.values().stream().mapToInt(q -> q.pending.size()).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ================= INTERNAL ================= */
+
+    private void enqueue(QueueKey key, Runnable work, Executor target) {
+        List<Runnable> launch;
+        lock.lock();
+        try {
+            LaneQueue queue = queues.computeIfAbsent(key,
+                    k -> new LaneQueue(k, userWeight(k.userId()) * laneWeights.get(k.lane())));
+            queue.pending.add(new Entry(work, target));
+            activate(queue);
+            launch = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        launch.forEach(Runnable::run);
+    }
+
+    private void finished(LaneQueue queue) {
+        List<Runnable> launch;
+        lock.lock();
+        try {
+            long user = queue.key.userId();
+            boolean wasAtCap = running(user) >= perUserMaxInFlight;
+            queue.inFlight--;
+            inFlight--;
+            userInFlight.computeIfPresent(user, (u, n) -> n > 1 ? n - 1 : null);
+
+            if (queue.pending.isEmpty() && queue.inFlight == 0) {
+                queues.remove(queue.key); // idle queues hold no state
+            }
+            if (wasAtCap) {
+                // Any of this user's lanes may have been parked on the shared cap
+                queues.values().stream()
+                        .filter(q -> q.key.userId() == user)
+                        .forEach(this::activate);
+            } else {
+                activate(queue);
+            }
+            launch = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        launch.forEach(Runnable::run);
+    }
+
+    private void activate(LaneQueue queue) {
+        if (!queue.active && !queue.pending.isEmpty() && running(queue.key.userId()) < perUserMaxInFlight) {
+            queue.active = true;
+            active.addLast(queue);
+        }
+    }
+
+    // Deficit round-robin; returns the hand-offs to run once the lock is released
+    private List<Runnable> dispatch() {
+        List<Runnable> launch = new ArrayList<>();
+        while (inFlight < maxInFlight && !active.isEmpty()) {
+            LaneQueue queue = active.pollFirst();
+            long user = queue.key.userId();
+            if (queue.deficit < 1) {
+                queue.deficit += queue.weight; // new round for this queue
+            }
+
+            while (queue.deficit >= 1 && !queue.pending.isEmpty()
+                    && running(user) < perUserMaxInFlight && inFlight < maxInFlight) {
+                Entry entry = queue.pending.poll();
+                queue.deficit--;
+                queue.inFlight++;
+                inFlight++;
+                userInFlight.merge(user, 1, Integer::sum);
+                launch.add(() -> handOff(queue, entry));
+            }
+
+            if (queue.pending.isEmpty()) {
+                queue.deficit = 0; // DRR: an emptied queue keeps no credit
+                queue.active = false;
+            } else if (running(user) >= perUserMaxInFlight) {
+                queue.active = false; // parked until one of the user's tasks finishes
+            } else if (queue.deficit >= 1) {
+                active.addFirst(queue); // global limit hit mid-turn, resume here
+                break;
+            } else {
+                active.addLast(queue);
+            }
+        }
+        return launch;
+    }
+
+    private void handOff(LaneQueue queue, Entry entry) {
+        try {
+            entry.target().execute(() -> {
+                try {
+                    entry.work().run();
+                } finally {
+                    finished(queue);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor shut down; the record stays unacknowledged and is redelivered
+            log.error("Fair scheduler could not hand off work for user {}: {}", queue.key.userId(), e.getMessage());
+            finished(queue);
+        }
+    }
+
+    private int running(long user) {
+        return userInFlight.getOrDefault(user, 0);
+    }
+
+    private int userWeight(long user) {
+        return Math.max(1, environment.getProperty("kafka.fair.weights." + user, Integer.class, 1));
+    }
+
+    private record QueueKey(long userId, TaskPriority lane) {}
+
+    private record Entry(Runnable work, Executor target) {}
+
+    private static final class LaneQueue {
+        final QueueKey key;
+        final int weight;
+        final Deque<Entry> pending = new ArrayDeque<>();
+        int inFlight;
+        int deficit;
+        boolean active;
+
+        LaneQueue(QueueKey key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+}
@@ -1,202 +1,177 @@
 package com.taskqueue.www.kafka;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.taskqueue.www.config.RetryConfig;
-import com.taskqueue.www.handler.TaskHandler;
 import com.taskqueue.www.handler.TaskHandlerRegistry;
-import com.taskqueue.www.model.DeadLetterQueue;
-import com.taskqueue.www.model.Task;
-import com.taskqueue.www.repository.DeadLetterQueueRepository;
-import com.taskqueue.www.repository.TaskRepository;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.service.TaskProcessor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Kafka side of the queue (queue.transport=kafka): decodes records and hands them
+ * to TaskProcessor, with partition throttling and the ASYNC pipeline in front.
+ * Only ASYNC pauses partitions whose type is saturated, see PartitionThrottle.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "queue.transport", havingValue = "kafka", matchIfMissing = true)
 public class KafkaConsumerService {
 
-    private final TaskRepository taskRepository;
+    private final TaskProcessor taskProcessor;
     private final TaskHandlerRegistry handlerRegistry;
-    private final DeadLetterQueueRepository dlqRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TaskMessageCodec messageCodec;
+    private final TaskExecutionPipeline executionPipeline;
+    private final PartitionThrottle partitionThrottle;
 
-    @KafkaListener(topics = "task-topic", groupId = "task-group")
-    @Transactional
+    @KafkaListener(id = "task-listener", topics = "#{@topicRouter.mainTopics()}", groupId = "task-group",
+            concurrency = "${kafka.listener-concurrency:3}",
+            autoStartup = "#{'${kafka.listener-mode:RECORD}' == 'RECORD'}")
     public void consume(ConsumerRecord<String, String> record) {
-        Long taskId = null;
-        try {
-            String message = record.value();
-            JsonNode node = objectMapper.readTree(message);
-            taskId = node.get("taskId").asLong();
-            String payload = node.has("payload") ? node.get("payload").asText() : null;
-
-            Optional<Task> opt = taskRepository.findById(taskId);
-            if (opt.isEmpty()) {
-                log.error("No task record found for id={}", taskId);
-                return;
-            }
-
-            Task task = opt.get();
-
-            // Idempotency: if already DONE, skip
-            if ("DONE".equalsIgnoreCase(task.getStatus())) {
-                log.info("Task {} already DONE — skipping", taskId);
-                return;
-            }
-
-            // Mark as processing
-            task.setStatus("PROCESSING");
-            task.setLastAttemptAt(LocalDateTime.now());
-            taskRepository.save(task);
-
-            // Parse the actual task payload
-            JsonNode taskPayload = objectMapper.readTree(payload);
-            String taskType = taskPayload.has("type")
-                    ? taskPayload.get("type").asText()
-                    : "DEFAULT";
-
-            log.info("Processing taskId={} type={} attempt={}",
-                    taskId, taskType, task.getRetryCount() + 1);
-
-            try {
-                // Route to appropriate handler
-                TaskHandler handler = handlerRegistry.getHandler(taskType);
-                if (handler != null) {
-                    handler.handle(taskPayload.toString());
-                } else {
-                    log.warn("No handler found for task type: {}. Using default processing.", taskType);
-                    Thread.sleep(2000); // Simulate work
-                    log.info("Default processing completed for: {}", payload);
-                }
-
-                // Success! Mark as done
-                task.setStatus("DONE");
-                task.setErrorMessage(null);
-                taskRepository.save(task);
-
-                // If this task was retried from DLQ, mark DLQ as resolved
-                updateDLQStatusIfRetried(taskId);
-
-                log.info("Task {} completed successfully", taskId);
-
-            } catch (Exception handlerException) {
-                // Handler failed - initiate retry logic
-                handleTaskFailure(task, handlerException, message);
-            }
-
-        } catch (Exception e) {
-            log.error("Critical error processing Kafka message for taskId={}: {}",
-                    taskId, e.getMessage(), e);
-
-            // Try to mark task as failed if we have the taskId
-            if (taskId != null) {
-                taskRepository.findById(taskId).ifPresent(task -> {
-                    task.setStatus("FAILED");
-                    task.setErrorMessage("Critical error: " + e.getMessage());
-                    taskRepository.save(task);
-                    moveToDLQ(task, e);
-                });
-            }
-        }
+        processRecord(record);
     }
 
-    private void handleTaskFailure(Task task, Exception exception, String originalMessage) {
-        task.setRetryCount(task.getRetryCount() + 1);
-        task.setErrorMessage(exception.getMessage());
-        task.setLastAttemptAt(LocalDateTime.now());
-
-        log.error("Task {} failed on attempt {}: {}",
-                task.getId(), task.getRetryCount(), exception.getMessage());
+    /**
+     * Async mode (kafka.listener-mode=ASYNC): the poll thread only hands the record to
+     * TaskExecutionPipeline and returns. The record is acknowledged once its task has
+     * finished, whatever the outcome; retries are re-published, not redelivered.
+     */
+    @KafkaListener(id = "task-async-listener", topics = "#{@topicRouter.mainTopics()}", groupId = "task-group",
+            concurrency = "${kafka.listener-concurrency:3}",
+            autoStartup = "#{'${kafka.listener-mode:RECORD}' == 'ASYNC'}",
+            containerFactory = "asyncKafkaListenerContainerFactory")
+    public void consumeAsync(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        consumeAsync("task-async-listener", record, ack);
+    }
 
-        if (RetryConfig.shouldRetry(task.getRetryCount())) {
-            // Schedule retry with exponential backoff
-            task.setStatus("PENDING");
-            taskRepository.save(task);
+    /**
+     * Priority lanes (kafka.routing.mode=PRIORITY): task-topic-high and task-topic-low get
+     * their own consumers in the same group, so a backlog on one lane never sits in front
+     * of another. They run in the same listener mode as the main listeners. The NORMAL
+     * lane is task-topic, served by the listener picked above.
+     *
+     * Weighting: in RECORD and BATCH mode a lane's share is its concurrency, the number
+     * of partitions it drains in parallel (KafkaTopicConfig gives each lane topic at least
+     * that many partitions). In ASYNC mode the lanes share TaskExecutionPipeline, whose
+     * fair scheduler starts lane work by kafka.routing.lanes.<lane>.weight.
+     */
+    @KafkaListener(id = "task-high-listener", topics = TopicRouter.HIGH_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.high.concurrency:3}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'RECORD'}")
+    public void consumeHigh(ConsumerRecord<String, String> record) {
+        processRecord(record);
+    }
 
-            long delayMs = RetryConfig.calculateBackoffDelay(task.getRetryCount());
-            log.info("Scheduling retry {} for task {} in {}ms",
-                    task.getRetryCount(), task.getId(), delayMs);
+    @KafkaListener(id = "task-high-async-listener", topics = TopicRouter.HIGH_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.high.concurrency:3}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'ASYNC'}",
+            containerFactory = "asyncKafkaListenerContainerFactory")
+    public void consumeHighAsync(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        consumeAsync("task-high-async-listener", record, ack);
+    }
 
-            scheduleRetry(originalMessage, delayMs);
+    @KafkaListener(id = "task-high-batch-listener", topics = TopicRouter.HIGH_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.high.concurrency:3}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'BATCH'}",
+            batch = "true")
+    public void consumeHighBatch(List<ConsumerRecord<String, String>> records) {
+        consumeBatch(records);
+    }
 
-        } else {
-            // Max retries exceeded - move to DLQ
-            task.setStatus("FAILED");
-            taskRepository.save(task);
+    @KafkaListener(id = "task-low-listener", topics = TopicRouter.LOW_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.low.concurrency:1}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'RECORD'}")
+    public void consumeLow(ConsumerRecord<String, String> record) {
+        processRecord(record);
+    }
 
-            log.error("Task {} failed permanently after {} attempts. Moving to DLQ.",
-                    task.getId(), task.getRetryCount());
+    @KafkaListener(id = "task-low-async-listener", topics = TopicRouter.LOW_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.low.concurrency:1}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'ASYNC'}",
+            containerFactory = "asyncKafkaListenerContainerFactory")
+    public void consumeLowAsync(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        consumeAsync("task-low-async-listener", record, ack);
+    }
 
-            moveToDLQ(task, exception);
-        }
+    @KafkaListener(id = "task-low-batch-listener", topics = TopicRouter.LOW_TOPIC, groupId = "task-group",
+            concurrency = "${kafka.routing.lanes.low.concurrency:1}",
+            autoStartup = "#{'${kafka.routing.mode:SINGLE}' == 'PRIORITY' && '${kafka.listener-mode:RECORD}' == 'BATCH'}",
+            batch = "true")
+    public void consumeLowBatch(List<ConsumerRecord<String, String>> records) {
+        consumeBatch(records);
     }
 
-    private void scheduleRetry(String message, long delayMs) {
-        // Schedule retry by re-publishing to Kafka after delay
-        // In production, use Kafka scheduled messages or a scheduler service
-        new Thread(() -> {
-            try {
-                Thread.sleep(delayMs);
-                kafkaTemplate.send("task-topic", message);
-                log.info("Retry message re-published to Kafka");
-            } catch (InterruptedException e) {
-                log.error("Retry scheduling interrupted", e);
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    private void consumeAsync(String listenerId, ConsumerRecord<String, String> record, Acknowledgment ack) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        String type = typeOf(record);
+        if (type != null) {
+            partitionThrottle.pauseIfSaturated(listenerId, partition, handlerRegistry.getBulkhead(type));
+        }
+        executionPipeline.submit(
+                listenerId,
+                partition,
+                record.key(),
+                type,
+                messageCodec.userId(record),
+                () -> processRecord(record),
+                ack::acknowledge);
     }
 
-    private void moveToDLQ(Task task, Exception exception) {
+    // v2 records name their type in a header; legacy ones only in the payload
+    private String typeOf(ConsumerRecord<String, String> record) {
+        Header type = record.headers().lastHeader(TaskMessageCodec.HEADER_TYPE);
+        if (type != null) {
+            return new String(type.value(), StandardCharsets.UTF_8);
+        }
         try {
-            DeadLetterQueue dlq = new DeadLetterQueue();
-            dlq.setOriginalTaskId(task.getId());
-            dlq.setPayload(task.getPayload());
-            dlq.setTotalAttempts(task.getRetryCount());
-            dlq.setLastError(exception.getMessage());
-            dlq.setFailedAt(LocalDateTime.now());
-            dlq.setStatus("FAILED");
-
-            dlqRepository.save(dlq);
-
-            log.info("Task {} moved to Dead Letter Queue (DLQ ID: {})",
-                    task.getId(), dlq.getId());
-
+            return messageCodec.readType(messageCodec.decode(record).payload());
         } catch (Exception e) {
-            log.error("Failed to move task {} to DLQ: {}", task.getId(), e.getMessage());
+            return null; // processRecord logs and skips it
         }
     }
 
-    private void updateDLQStatusIfRetried(Long taskId) {
+    private void processRecord(ConsumerRecord<String, String> record) {
+        TaskMessage message;
         try {
-            taskRepository.findById(taskId).ifPresent(task -> {
-                // Check if this task was retried from DLQ
-                if (task.getRetriedFromDlqId() != null) {
-                    dlqRepository.findById(task.getRetriedFromDlqId()).ifPresent(dlq -> {
-                        dlq.setStatus("RESOLVED");
-                        String resolution = dlq.getResolution() != null
-                                ? dlq.getResolution() + " - Retry successful"
-                                : "Retry successful";
-                        dlq.setResolution(resolution);
-                        dlqRepository.save(dlq);
-
-                        log.info("DLQ item {} marked as RESOLVED after successful retry (task {})",
-                                dlq.getId(), taskId);
-                    });
-                }
-            });
+            message = messageCodec.decode(record);
         } catch (Exception e) {
-            log.error("Failed to update DLQ status after successful retry: {}", e.getMessage());
+            log.error("Skipping undecodable record at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            return;
+        }
+        taskProcessor.process(message);
+    }
+
+    /**
+     * Batch mode (kafka.listener-mode=BATCH): one claim statement for the whole poll,
+     * set-based PROCESSING/DONE transitions, and one offset commit per batch
+     * (container ack mode BATCH). Failures still go through retry/DLQ per task.
+     */
+    @KafkaListener(id = "task-batch-listener", topics = "#{@topicRouter.mainTopics()}", groupId = "task-group",
+            concurrency = "${kafka.listener-concurrency:3}",
+            autoStartup = "#{'${kafka.listener-mode:RECORD}' == 'BATCH'}",
+            batch = "true")
+    public void consumeBatch(List<ConsumerRecord<String, String>> records) {
+
+        List<TaskMessage> messages = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                messages.add(messageCodec.decode(record));
+            } catch (Exception e) {
+                log.error("Skipping undecodable record at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+            }
         }
+        taskProcessor.processBatch(messages);
     }
-}
\ No newline at end of file
+}
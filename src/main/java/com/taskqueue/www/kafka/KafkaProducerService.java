@@ -1,40 +1,49 @@
 package com.taskqueue.www.kafka;
 
+import com.taskqueue.www.metrics.TaskMetrics;
 import com.taskqueue.www.model.OutboxEvent;
-import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.transport.OutboxAckBuffer;
+import com.taskqueue.www.transport.TaskTransport;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class KafkaProducerService {
+@ConditionalOnProperty(name = "queue.transport", havingValue = "kafka", matchIfMissing = true)
+public class KafkaProducerService implements TaskTransport {
 
     private final KafkaTemplate<String, String> kafkaTemplate;
-    private final OutboxRepository outboxRepository;
+    private final TaskMessageCodec codec;
+    private final OutboxAckBuffer ackBuffer;
+    private final TaskMetrics taskMetrics;
 
+    @Override
     public void sendTask(OutboxEvent event) {
 
+        String topic = event.getTopic() != null ? event.getTopic() : TopicRouter.DEFAULT_TOPIC;
+        long start = System.nanoTime();
         CompletableFuture<SendResult<String, String>> future =
-                kafkaTemplate.send("task-topic", event.getPayload());
+                kafkaTemplate.send(codec.encode(topic, event.getMessageKey(), event));
 
+        // Runs on the Kafka I/O thread — only buffer the outcome, see OutboxAckBuffer
         future.whenComplete((result, ex) -> {
+            taskMetrics.producerAck(topic, start, ex == null);
 
             if (ex == null) {
-                // SUCCESS
-                event.setStatus("SENT");
-                outboxRepository.save(event);
-
-                System.out.println("Kafka ACK for outboxId=" + event.getId());
+                ackBuffer.acked(event.getId());
+                log.debug("Kafka ACK for outboxId={}", event.getId());
             } else {
-                // FAILURE
-                System.err.println("Kafka send failed for outboxId="
-                        + event.getId() + " : " + ex.getMessage());
+                log.warn("Kafka send failed for outboxId={}: {}", event.getId(), ex.getMessage());
 
-                // Keep status NEW (auto retry later)
+                // Release the claim so the next poll picks it up again
+                ackBuffer.failed(event.getId());
             }
         });
     }
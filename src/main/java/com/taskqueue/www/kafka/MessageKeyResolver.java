@@ -0,0 +1,37 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.enums.PartitionKeyStrategy;
+import com.taskqueue.www.model.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the Kafka record key for a task, which decides its partition.
+ * Records with the same key land on the same partition and are consumed in order,
+ * in every listener mode; ASYNC keeps it by running same-key records one at a time
+ * (see TaskExecutionPipeline), unless kafka.async.key-order=false.
+ */
+@Slf4j
+@Component
+public class MessageKeyResolver {
+
+    private final TaskMessageCodec codec;
+    private final PartitionKeyStrategy strategy;
+
+    public MessageKeyResolver(TaskMessageCodec codec,
+                              @Value("${kafka.partition-key:USER_ID}") PartitionKeyStrategy strategy) {
+        this.codec = codec;
+        this.strategy = strategy;
+        log.info("Kafka partition key strategy: {}", strategy);
+    }
+
+    public String keyFor(Task task) {
+        return switch (strategy) {
+            case TASK_ID -> task.getId() != null ? task.getId().toString() : null;
+            case USER_ID -> task.getUserId() != null ? task.getUserId().toString() : null;
+            case TASK_TYPE -> codec.readType(task.getPayload());
+            case NONE -> null;
+        };
+    }
+}
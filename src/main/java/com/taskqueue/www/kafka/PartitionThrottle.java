@@ -0,0 +1,80 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.handler.TaskBulkhead;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Stops fetching from a partition instead of blocking its poll thread, and resumes
+ * it once every reason it was paused for has cleared: a full bulkhead for the type
+ * of the record it just delivered, or the ASYNC pipeline's per-partition limit.
+ * <p>
+ * Only listener mode ASYNC pauses. RECORD and BATCH run each task on the poll thread
+ * itself, so a consumer has at most one task in a bulkhead and simply stops polling
+ * while that task runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartitionThrottle {
+
+    private record Paused(String listenerId, TopicPartition partition) {}
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+
+    // reason -> "still saturated" check, per paused partition
+    private final Map<Paused, Map<String, BooleanSupplier>> paused = new ConcurrentHashMap<>();
+
+    public void pauseIfSaturated(String listenerId, TopicPartition partition, TaskBulkhead bulkhead) {
+        if (bulkhead.isSaturated()) {
+            pause(listenerId, partition, bulkhead.getType() + " bulkhead", bulkhead::isSaturated);
+        }
+    }
+
+    /**
+     * Pauses the partition until {@code saturated} turns false (and any other
+     * reason it is paused for has cleared). Never blocks the caller.
+     */
+    public void pause(String listenerId, TopicPartition partition, String reason, BooleanSupplier saturated) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container == null) {
+            return;
+        }
+
+        // The container call happens under the map's lock, so it cannot cross a resume
+        paused.compute(new Paused(listenerId, partition), (key, reasons) -> {
+            if (reasons == null) {
+                reasons = new ConcurrentHashMap<>();
+                container.pausePartition(partition);
+                log.info("Paused {} — {}", partition, reason);
+            }
+            reasons.putIfAbsent(reason, saturated);
+            return reasons;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${handlers.resume-check-ms:200}")
+    public void resumeDrained() {
+        paused.keySet().forEach(key -> paused.computeIfPresent(key, (k, reasons) -> {
+            reasons.values().removeIf(saturated -> !saturated.getAsBoolean());
+            if (!reasons.isEmpty()) {
+                return reasons;
+            }
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(k.listenerId());
+            if (container != null) {
+                container.resumePartition(k.partition());
+            }
+            log.info("Resumed {}", k.partition());
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,163 @@
+package com.taskqueue.www.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs task work off the Kafka poll thread (listener mode ASYNC).
+ *
+ * - Work runs on virtual threads, so thousands of I/O-bound handlers can wait at once.
+ *   Types listed in kafka.async.platform-types run on a small platform pool instead:
+ *   JavaMail's SMTPTransport does its socket I/O inside synchronized methods, which
+ *   pins the carrier thread on JDK 21, so EMAIL gains nothing from virtual threads.
+ * - submit() never blocks. Every record goes straight into FairTaskScheduler, which
+ *   decides when it starts, so all users on a partition are visible to it. Records from
+ *   the PRIORITY lanes are queued under their lane, which weights how often they start.
+ * - Once kafka.async.max-in-flight-per-partition records of a partition are queued or
+ *   running, fetching from it is paused (PartitionThrottle) until half have finished.
+ *   Records from the poll that crossed the limit are still accepted, so the limit is soft.
+ * - Records with the same key on a partition run one at a time, in offset order, so
+ *   the per-key order MessageKeyResolver promises holds here too; the next one enters
+ *   FairTaskScheduler only once the previous one has finished. With
+ *   kafka.async.key-order=false records run concurrently instead, and only the task
+ *   claim keeps a task that was delivered twice from running twice at once.
+ *
+ * The caller acknowledges each record from onDone; the container (asyncAcks) only
+ * commits up to the highest contiguous acknowledged offset.
+ */
+@Slf4j
+@Component
+public class TaskExecutionPipeline {
+
+    private final ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService platformExecutor;
+    private final Set<String> platformTypes;
+    private final int maxInFlightPerPartition;
+
+    private final Map<TopicPartition, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    // Records waiting behind a running record with the same key; present while one runs
+    private record KeyLane(TopicPartition partition, String key) {}
+    private final Map<KeyLane, Deque<Runnable>> keyLanes = new ConcurrentHashMap<>();
+    private final boolean keyOrder;
+
+    private final FairTaskScheduler fairScheduler;
+    private final PartitionThrottle partitionThrottle;
+    private final TopicRouter topicRouter;
+
+    public TaskExecutionPipeline(
+            FairTaskScheduler fairScheduler,
+            PartitionThrottle partitionThrottle,
+            TopicRouter topicRouter,
+            @Value("${kafka.async.max-in-flight-per-partition:256}") int maxInFlightPerPartition,
+            @Value("${kafka.async.platform-threads:16}") int platformThreads,
+            @Value("${kafka.async.platform-types:EMAIL}") Set<String> platformTypes,
+            @Value("${kafka.async.key-order:true}") boolean keyOrder) {
+        this.fairScheduler = fairScheduler;
+        this.partitionThrottle = partitionThrottle;
+        this.topicRouter = topicRouter;
+        this.maxInFlightPerPartition = maxInFlightPerPartition;
+        this.platformTypes = platformTypes;
+        this.keyOrder = keyOrder;
+        this.platformExecutor = Executors.newFixedThreadPool(platformThreads);
+    }
+
+    public void submit(String listenerId, TopicPartition partition, String key, String taskType, Long userId,
+                       Runnable work, Runnable onDone) {
+
+        AtomicInteger pending = inFlight.computeIfAbsent(partition, p -> new AtomicInteger());
+        if (pending.incrementAndGet() >= maxInFlightPerPartition) {
+            partitionThrottle.pause(listenerId, partition, "in-flight limit",
+                    () -> pending.get() > maxInFlightPerPartition / 2);
+        }
+
+        Executor executor = fairScheduler.executorFor(userId, topicRouter.priorityOf(partition.topic()),
+                platformTypes.contains(taskType) ? platformExecutor : virtualExecutor);
+        KeyLane lane = keyOrder && key != null ? new KeyLane(partition, key) : null;
+        Runnable start = () -> start(executor, partition, pending, lane, work, onDone);
+
+        if (lane == null || enqueue(lane, start)) {
+            start.run();
+        }
+    }
+
+    // True if no record with this key is running, so this one starts now
+    private boolean enqueue(KeyLane lane, Runnable start) {
+        boolean[] idle = new boolean[1];
+        keyLanes.compute(lane, (k, waiting) -> {
+            if (waiting == null) {
+                idle[0] = true;
+                return new ArrayDeque<>();
+            }
+            waiting.add(start);
+            return waiting;
+        });
+        return idle[0];
+    }
+
+    private void start(Executor executor, TopicPartition partition, AtomicInteger pending, KeyLane lane,
+                       Runnable work, Runnable onDone) {
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    log.error("Task execution failed on {}: {}", partition, e.getMessage(), e);
+                } finally {
+                    pending.decrementAndGet();
+                    onDone.run();
+                    startNext(lane);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the record stays unacknowledged and is redelivered
+            pending.decrementAndGet();
+            log.warn("Task pipeline rejected a record from {}: {}", partition, e.getMessage());
+            startNext(lane);
+        }
+    }
+
+    private void startNext(KeyLane lane) {
+        if (lane == null) {
+            return;
+        }
+        Runnable[] next = new Runnable[1];
+        keyLanes.computeIfPresent(lane, (k, waiting) -> {
+            next[0] = waiting.poll();
+            return next[0] != null ? waiting : null;
+        });
+        if (next[0] != null) {
+            next[0].run();
+        }
+    }
+
+    public int inFlight(TopicPartition partition) {
+        AtomicInteger pending = inFlight.get(partition);
+        return pending == null ? 0 : pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        virtualExecutor.shutdown();
+        platformExecutor.shutdown();
+        if (!virtualExecutor.awaitTermination(30, TimeUnit.SECONDS)
+                || !platformExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Task pipeline did not drain before shutdown; unacknowledged records will be redelivered");
+        }
+    }
+}
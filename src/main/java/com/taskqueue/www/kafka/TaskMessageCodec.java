@@ -0,0 +1,134 @@
+package com.taskqueue.www.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.Task;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Wire format for task-topic records.
+ *
+ * v2: taskId and type travel as Kafka headers, the record value is the raw task
+ * payload. Nothing is nested or escaped, and the consumer can route without parsing.
+ *
+ * v1 (legacy): value is {"taskId": .., "payload": "<escaped task JSON>"}, no headers.
+ * Still decoded so records and outbox rows written before the rollout drain cleanly.
+ */
+@Component
+public class TaskMessageCodec {
+
+    public static final String HEADER_VERSION = "tq-v";
+    public static final String HEADER_TASK_ID = "tq-task-id";
+    public static final String HEADER_TYPE = "tq-type";
+    public static final String HEADER_USER_ID = "tq-user-id";
+
+    private static final byte[] VERSION_2 = {2};
+
+    private final ObjectMapper objectMapper;
+
+    public TaskMessageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public record TaskMessage(Long taskId, String type, String payload) {}
+
+    /* ================= ENCODE ================= */
+
+    public OutboxEvent toOutboxEvent(Task task) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTaskId(task.getId());
+        event.setTaskType(readType(task.getPayload()));
+        event.setUserId(task.getUserId());
+        event.setPayload(task.getPayload());
+        event.setStatus("NEW");
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    public ProducerRecord<String, String> encode(String topic, String key, OutboxEvent event) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, event.getPayload());
+
+        // Rows written before v2 have no type and already hold the v1 envelope
+        if (event.getTaskType() != null) {
+            Headers headers = record.headers();
+            headers.add(HEADER_VERSION, VERSION_2);
+            headers.add(HEADER_TASK_ID, ByteBuffer.allocate(Long.BYTES).putLong(event.getTaskId()).array());
+            headers.add(HEADER_TYPE, event.getTaskType().getBytes(StandardCharsets.UTF_8));
+            if (event.getUserId() != null) {
+                headers.add(HEADER_USER_ID, ByteBuffer.allocate(Long.BYTES).putLong(event.getUserId()).array());
+            }
+        }
+        return record;
+    }
+
+    /* ================= DECODE ================= */
+
+    public TaskMessage decode(ConsumerRecord<String, String> record) throws Exception {
+        Header version = record.headers().lastHeader(HEADER_VERSION);
+        if (version != null) {
+            Header taskId = record.headers().lastHeader(HEADER_TASK_ID);
+            Header type = record.headers().lastHeader(HEADER_TYPE);
+            // Thrown as a decode error, so the record takes the undecodable-record path
+            if (taskId == null || taskId.value() == null || taskId.value().length != Long.BYTES) {
+                throw new IllegalArgumentException("v2 record without a valid " + HEADER_TASK_ID + " header");
+            }
+            if (type == null || type.value() == null) {
+                throw new IllegalArgumentException("v2 record without a " + HEADER_TYPE + " header");
+            }
+            return new TaskMessage(
+                    ByteBuffer.wrap(taskId.value()).getLong(),
+                    new String(type.value(), StandardCharsets.UTF_8),
+                    record.value());
+        }
+
+        return decodeV1(record.value());
+    }
+
+    // Transports without Kafka records; legacy rows still hold the v1 envelope
+    public TaskMessage toMessage(OutboxEvent event) throws Exception {
+        if (event.getTaskType() != null) {
+            return new TaskMessage(event.getTaskId(), event.getTaskType(), event.getPayload());
+        }
+        TaskMessage legacy = decodeV1(event.getPayload());
+        return new TaskMessage(legacy.taskId(), readType(legacy.payload()), legacy.payload());
+    }
+
+    private TaskMessage decodeV1(String value) throws Exception {
+        JsonNode node = objectMapper.readTree(value);
+        if (node == null || !node.hasNonNull("taskId")) {
+            throw new IllegalArgumentException("v1 record without a taskId");
+        }
+        return new TaskMessage(
+                node.get("taskId").asLong(),
+                null,
+                node.has("payload") ? node.get("payload").asText() : null);
+    }
+
+    // Owner of the task, used for fair scheduling; null on legacy records
+    public Long userId(ConsumerRecord<String, String> record) {
+        Header userId = record.headers().lastHeader(HEADER_USER_ID);
+        return userId != null ? ByteBuffer.wrap(userId.value()).getLong() : null;
+    }
+
+    public JsonNode readPayload(String payload) throws Exception {
+        return objectMapper.readTree(payload);
+    }
+
+    public String readType(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            return node.has("type") ? node.get("type").asText() : "DEFAULT";
+        } catch (Exception e) {
+            return "DEFAULT";
+        }
+    }
+}
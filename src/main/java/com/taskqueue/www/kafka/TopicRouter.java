@@ -0,0 +1,97 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.enums.RoutingMode;
+import com.taskqueue.www.enums.TaskPriority;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which topic a task is published to (kafka.routing.mode) and which
+ * topics the main listeners of this node subscribe to.
+ */
+@Slf4j
+@Component("topicRouter")
+public class TopicRouter {
+
+    public static final String DEFAULT_TOPIC = "task-topic";
+    public static final String HIGH_TOPIC = DEFAULT_TOPIC + "-high";
+    public static final String LOW_TOPIC = DEFAULT_TOPIC + "-low";
+
+    private final RoutingMode mode;
+    private final List<String> types;
+    private final List<String> consumeTypes;
+
+    public TopicRouter(@Value("${kafka.routing.mode:SINGLE}") RoutingMode mode,
+                       @Value("${kafka.routing.types:PDF,EMAIL,WEBHOOK}") List<String> types,
+                       @Value("${kafka.routing.consume-types:}") List<String> consumeTypes) {
+        this.mode = mode;
+        this.types = types;
+        List<String> selected = consumeTypes.stream().filter(t -> !t.isBlank()).toList();
+        this.consumeTypes = selected.isEmpty() ? types : selected;
+    }
+
+    @PostConstruct
+    void logRouting() {
+        log.info("Task routing mode: {}, main listeners consume {}", mode, List.of(mainTopics()));
+    }
+
+    public RoutingMode mode() {
+        return mode;
+    }
+
+    public String topicFor(String type, TaskPriority priority) {
+        return switch (mode) {
+            case SINGLE -> DEFAULT_TOPIC;
+            case PRIORITY -> priority == TaskPriority.HIGH ? HIGH_TOPIC
+                    : priority == TaskPriority.LOW ? LOW_TOPIC
+                    : DEFAULT_TOPIC;
+            case TYPE -> type != null && types.contains(type) ? typeTopic(type) : DEFAULT_TOPIC;
+        };
+    }
+
+    // The lane a record came in on; everything but the PRIORITY side lanes is NORMAL
+    public TaskPriority priorityOf(String topic) {
+        return switch (topic) {
+            case HIGH_TOPIC -> TaskPriority.HIGH;
+            case LOW_TOPIC -> TaskPriority.LOW;
+            default -> TaskPriority.NORMAL;
+        };
+    }
+
+    /**
+     * Topics for the RECORD/BATCH/ASYNC listeners. The priority lanes have their own
+     * listeners; task-topic is always included so legacy and untyped records drain.
+     */
+    public String[] mainTopics() {
+        List<String> topics = new ArrayList<>();
+        topics.add(DEFAULT_TOPIC);
+        if (mode == RoutingMode.TYPE) {
+            consumeTypes.forEach(t -> topics.add(typeTopic(t)));
+        }
+        return topics.toArray(String[]::new);
+    }
+
+    // Every topic this mode can publish to, for provisioning
+    public List<String> allTopics() {
+        List<String> topics = new ArrayList<>();
+        topics.add(DEFAULT_TOPIC);
+        switch (mode) {
+            case PRIORITY -> {
+                topics.add(HIGH_TOPIC);
+                topics.add(LOW_TOPIC);
+            }
+            case TYPE -> types.forEach(t -> topics.add(typeTopic(t)));
+            default -> { }
+        }
+        return topics;
+    }
+
+    private String typeTopic(String type) {
+        return DEFAULT_TOPIC + "-" + type.toLowerCase();
+    }
+}
@@ -0,0 +1,142 @@
+package com.taskqueue.www.metrics;
+
+import com.taskqueue.www.dto.RecordingDTO;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts and stops Flight Recorder recordings on this node, from the admin API.
+ *
+ * Recordings use a JDK settings file ("default" ~1% overhead, "profile" adds
+ * allocation and method sampling) with the taskqueue.* events switched on, and
+ * are dumped to jfr.dump-dir when they stop or reach their max duration.
+ */
+@Slf4j
+@Component
+public class FlightRecordings {
+
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path dumpDir;
+    private final Duration maxDuration;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    public FlightRecordings(@Value("${jfr.dump-dir:recordings}") String dumpDir,
+                            @Value("${jfr.max-duration-seconds:3600}") long maxDurationSeconds) {
+        this.dumpDir = Paths.get(dumpDir);
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+    }
+
+    public RecordingDTO start(String settings, Long durationSeconds) throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight Recorder is not available in this JVM");
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : "default");
+        } catch (ParseException | IOException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settings);
+        }
+
+        Duration duration = durationSeconds != null ? Duration.ofSeconds(durationSeconds) : maxDuration;
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be between 1 and " + maxDuration.toSeconds() + " seconds");
+        }
+
+        Files.createDirectories(dumpDir);
+
+        Recording recording = new Recording(configuration);
+        recording.setName("taskqueue-" + LocalDateTime.now().format(FILE_STAMP));
+        recording.enable(TaskEvents.Consume.class);
+        recording.enable(TaskEvents.Handler.class);
+        recording.enable(TaskEvents.RetryScheduled.class);
+        recording.enable(TaskEvents.DlqMove.class);
+        recording.enable(TaskEvents.OutboxFlush.class);
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setDestination(dumpDir.resolve(recording.getName() + ".jfr"));
+        recording.start();
+
+        recordings.put(recording.getId(), recording);
+        log.info("Started JFR recording {} ({} settings, up to {}s)",
+                recording.getName(), configuration.getName(), duration.toSeconds());
+        return toDTO(recording);
+    }
+
+    // Stops the recording; its destination file is written as part of the stop
+    public RecordingDTO stop(long id) {
+        Recording recording = get(id);
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped JFR recording {} -> {}", recording.getName(), recording.getDestination());
+        }
+        return toDTO(recording);
+    }
+
+    public List<RecordingDTO> list() {
+        return recordings.values().stream().map(this::toDTO).toList();
+    }
+
+    // Only finished recordings have a complete file
+    public Path file(long id) {
+        Recording recording = get(id);
+        if (recording.getState() != RecordingState.STOPPED && recording.getState() != RecordingState.CLOSED) {
+            throw new IllegalArgumentException("Recording " + id + " is still running");
+        }
+        return recording.getDestination();
+    }
+
+    public void delete(long id) throws IOException {
+        Recording recording = get(id);
+        recording.close();
+        recordings.remove(id);
+        if (recording.getDestination() != null) {
+            Files.deleteIfExists(recording.getDestination());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Stopping dumps whatever has been recorded so far
+        recordings.values().stream()
+                .filter(r -> r.getState() == RecordingState.RUNNING)
+                .forEach(Recording::stop);
+    }
+
+    private Recording get(long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            throw new IllegalArgumentException("Recording not found: " + id);
+        }
+        return recording;
+    }
+
+    private RecordingDTO toDTO(Recording recording) {
+        return new RecordingDTO(
+                recording.getId(),
+                recording.getName(),
+                recording.getState().name(),
+                recording.getStartTime(),
+                recording.getDuration() != null ? recording.getDuration().toSeconds() : null,
+                recording.getDestination() != null ? recording.getDestination().toString() : null);
+    }
+}
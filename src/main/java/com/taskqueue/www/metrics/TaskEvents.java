@@ -0,0 +1,177 @@
+package com.taskqueue.www.metrics;
+
+import com.taskqueue.www.handler.TaskBulkhead;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JDK Flight Recorder events for the task lifecycle. They cost next to nothing
+ * unless a recording is running (see FlightRecordings), and land in the same file
+ * as GC, lock and socket events, so a slow task can be lined up against them.
+ *
+ * Duration events (consume, handler, outbox flush) span the work they describe;
+ * retry and DLQ events are instants.
+ */
+public final class TaskEvents {
+
+    private TaskEvents() {
+    }
+
+    /* ================= EVENTS ================= */
+
+    @Name("taskqueue.TaskConsume")
+    @Label("Task Consume")
+    @Description("Claim, handler run and final status update of one delivered task")
+    @Category({"Task Queue", "Consumer"})
+    @StackTrace(false)
+    public static class Consume extends Event {
+        @Label("Task Id")
+        public long taskId;
+        @Label("Type")
+        public String type;
+        @Label("Attempt")
+        public int attempt;
+        @Label("Payload Size")
+        @DataAmount
+        public long payloadSize;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("taskqueue.HandlerExecution")
+    @Label("Handler Execution")
+    @Description("Time spent inside a task handler, after the bulkhead admitted it")
+    @Category({"Task Queue", "Handler"})
+    @StackTrace(false)
+    public static class Handler extends Event {
+        @Label("Task Id")
+        public long taskId;
+        @Label("Type")
+        public String type;
+        @Label("Attempt")
+        public int attempt;
+        @Label("Payload Size")
+        @DataAmount
+        public long payloadSize;
+        @Label("Success")
+        public boolean success;
+        @Label("Error")
+        public String error;
+    }
+
+    @Name("taskqueue.RetryScheduled")
+    @Label("Retry Scheduled")
+    @Category({"Task Queue", "Consumer"})
+    @StackTrace(false)
+    public static class RetryScheduled extends Event {
+        @Label("Task Id")
+        public long taskId;
+        @Label("Type")
+        public String type;
+        @Label("Attempt")
+        public int attempt;
+        @Label("Delay")
+        @Timespan(Timespan.MILLISECONDS)
+        public long delay;
+        @Label("Error")
+        public String error;
+    }
+
+    @Name("taskqueue.DlqMove")
+    @Label("Moved To DLQ")
+    @Category({"Task Queue", "Consumer"})
+    @StackTrace(false)
+    public static class DlqMove extends Event {
+        @Label("Task Id")
+        public long taskId;
+        @Label("Type")
+        public String type;
+        @Label("Attempt")
+        public int attempt;
+        @Label("Payload Size")
+        @DataAmount
+        public long payloadSize;
+        @Label("Error")
+        public String error;
+    }
+
+    @Name("taskqueue.OutboxFlush")
+    @Label("Outbox Flush")
+    @Description("One outbox batch handed to the transport, or one ACK write-back")
+    @Category({"Task Queue", "Outbox"})
+    @StackTrace(false)
+    public static class OutboxFlush extends Event {
+        @Label("Kind")
+        public String kind;
+        @Label("Events")
+        public int events;
+        @Label("Payload Size")
+        @DataAmount
+        public long payloadSize;
+        @Label("First Task Id")
+        public long firstTaskId;
+    }
+
+    /* ================= HELPERS ================= */
+
+    // Wraps handler work so the event spans only the handler, not the bulkhead wait
+    public static TaskBulkhead.Work handler(long taskId, String type, int attempt, String payload,
+                                            TaskBulkhead.Work work) {
+        return () -> {
+            Handler event = new Handler();
+            event.begin();
+            try {
+                work.run();
+                event.success = true;
+            } catch (Exception e) {
+                event.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                throw e;
+            } finally {
+                if (event.shouldCommit()) {
+                    event.taskId = taskId;
+                    event.type = type;
+                    event.attempt = attempt;
+                    event.payloadSize = sizeOf(payload);
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    public static void retryScheduled(long taskId, String type, int attempt, long delayMs, Exception error) {
+        RetryScheduled event = new RetryScheduled();
+        if (event.shouldCommit()) {
+            event.taskId = taskId;
+            event.type = type;
+            event.attempt = attempt;
+            event.delay = delayMs;
+            event.error = error.getMessage();
+            event.commit();
+        }
+    }
+
+    public static void dlqMove(long taskId, String type, int attempt, String payload, Exception error) {
+        DlqMove event = new DlqMove();
+        if (event.shouldCommit()) {
+            event.taskId = taskId;
+            event.type = type;
+            event.attempt = attempt;
+            event.payloadSize = sizeOf(payload);
+            event.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+            event.commit();
+        }
+    }
+
+    // UTF-8 bytes, as @DataAmount promises; only call it for an event that will be committed
+    public static long sizeOf(String payload) {
+        return payload != null ? payload.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+}
@@ -0,0 +1,170 @@
+package com.taskqueue.www.metrics;
+
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.handler.TaskBulkhead;
+import com.taskqueue.www.kafka.FairTaskScheduler;
+import com.taskqueue.www.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task lifecycle meters, scraped from /actuator/prometheus:
+ *
+ *   taskqueue.task.queue.wait      created -> first attempt, per type
+ *   taskqueue.handler.duration     handler run time, per type and outcome
+ *   taskqueue.task.completed / retries / dlq   counters per type
+ *   taskqueue.task.retries.deferred            retries pushed back by the retry budget
+ *   taskqueue.task.dlq.write.failures          tasks failed without their DLQ entry
+ *   taskqueue.task.failures        failed attempts per type and FailureKind
+ *   taskqueue.outbox.backlog       unsent outbox rows per status (sampled)
+ *   taskqueue.outbox.oldest.age    age of the oldest NEW row (sampled)
+ *   taskqueue.producer.ack         send -> broker ACK, per topic and outcome
+ *   taskqueue.fair.queued / in.flight          fair scheduler load on this node
+ *
+ * Consumer lag comes from the Kafka client metrics Spring Boot binds to every
+ * consumer (kafka.consumer.fetch.manager.records.lag[.max]).
+ */
+@Slf4j
+@Component
+public class TaskMetrics {
+
+    private final MeterRegistry registry;
+    private final OutboxRepository outboxRepository;
+
+    private final Map<String, Timer> queueWait = new ConcurrentHashMap<>();
+    private final Map<String, Timer> handlerSuccess = new ConcurrentHashMap<>();
+    private final Map<String, Timer> handlerFailure = new ConcurrentHashMap<>();
+    private final Map<String, Counter> completed = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> dlq = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deferred = new ConcurrentHashMap<>();
+    private final Map<String, Counter> dlqWriteFailures = new ConcurrentHashMap<>();
+    private final Map<Failure, Counter> failures = new ConcurrentHashMap<>();
+    private final Map<String, Timer> ackSuccess = new ConcurrentHashMap<>();
+    private final Map<String, Timer> ackFailure = new ConcurrentHashMap<>();
+
+    private record Failure(String type, FailureKind kind) {}
+
+    private final AtomicLong outboxNew = new AtomicLong();
+    private final AtomicLong outboxInFlight = new AtomicLong();
+    private final AtomicLong outboxOldestAgeMs = new AtomicLong();
+
+    public TaskMetrics(MeterRegistry registry, OutboxRepository outboxRepository,
+                       FairTaskScheduler fairScheduler) {
+        this.registry = registry;
+        this.outboxRepository = outboxRepository;
+
+        Gauge.builder("taskqueue.outbox.backlog", outboxNew, AtomicLong::get)
+                .tag("status", "NEW").register(registry);
+        Gauge.builder("taskqueue.outbox.backlog", outboxInFlight, AtomicLong::get)
+                .tag("status", "IN_FLIGHT").register(registry);
+        Gauge.builder("taskqueue.outbox.oldest.age", outboxOldestAgeMs, v -> v.get() / 1000.0)
+                .baseUnit("seconds").register(registry);
+        Gauge.builder("taskqueue.fair.queued", fairScheduler, FairTaskScheduler::queued).register(registry);
+        Gauge.builder("taskqueue.fair.in.flight", fairScheduler, FairTaskScheduler::inFlight).register(registry);
+    }
+
+    /* ================= CONSUMER ================= */
+
+    public void queueWait(String type, LocalDateTime createdAt, LocalDateTime firstAttemptAt) {
+        if (createdAt == null || firstAttemptAt == null) {
+            return;
+        }
+        queueWait.computeIfAbsent(type, t -> Timer.builder("taskqueue.task.queue.wait")
+                        .tag("type", t).register(registry))
+                .record(Duration.between(createdAt, firstAttemptAt));
+    }
+
+    // Wraps handler work so its own run time is recorded, without time spent queued in the bulkhead
+    public TaskBulkhead.Work timed(String type, TaskBulkhead.Work work) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                work.run();
+                handlerTimer(handlerSuccess, type, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                handlerTimer(handlerFailure, type, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        };
+    }
+
+    public void completed(String type) {
+        counter(completed, "taskqueue.task.completed", type).increment();
+    }
+
+    public void retryScheduled(String type) {
+        counter(retries, "taskqueue.task.retries", type).increment();
+    }
+
+    public void failed(String type, FailureKind kind) {
+        failures.computeIfAbsent(new Failure(type, kind), f -> Counter.builder("taskqueue.task.failures")
+                        .tag("type", f.type())
+                        .tag("kind", f.kind().name())
+                        .register(registry))
+                .increment();
+    }
+
+    public void retryDeferred(String type) {
+        counter(deferred, "taskqueue.task.retries.deferred", type).increment();
+    }
+
+    public void movedToDlq(String type) {
+        counter(dlq, "taskqueue.task.dlq", type).increment();
+    }
+
+    public void dlqWriteFailed(String type) {
+        counter(dlqWriteFailures, "taskqueue.task.dlq.write.failures", type).increment();
+    }
+
+    /* ================= PRODUCER ================= */
+
+    public void producerAck(String topic, long startNanos, boolean success) {
+        String outcome = success ? "success" : "failure";
+        (success ? ackSuccess : ackFailure).computeIfAbsent(topic, t -> Timer.builder("taskqueue.producer.ack")
+                        .tag("topic", t)
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* ================= OUTBOX ================= */
+
+    // Sampled rather than queried per scrape, so scrapes never hit the database
+    @Scheduled(fixedDelayString = "${metrics.outbox-sample-ms:5000}")
+    public void sampleOutbox() {
+        try {
+            outboxNew.set(outboxRepository.countByStatus("NEW"));
+            outboxInFlight.set(outboxRepository.countByStatus("IN_FLIGHT"));
+            LocalDateTime oldest = outboxRepository.findOldestCreatedAt("NEW");
+            outboxOldestAgeMs.set(oldest != null ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0);
+        } catch (Exception e) {
+            log.warn("Outbox metrics sample failed: {}", e.getMessage());
+        }
+    }
+
+    /* ================= INTERNAL ================= */
+
+    private Timer handlerTimer(Map<String, Timer> cache, String type, String outcome) {
+        return cache.computeIfAbsent(type, t -> Timer.builder("taskqueue.handler.duration")
+                .tag("type", t)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private Counter counter(Map<String, Counter> cache, String name, String type) {
+        return cache.computeIfAbsent(type, t -> Counter.builder(name).tag("type", t).register(registry));
+    }
+}
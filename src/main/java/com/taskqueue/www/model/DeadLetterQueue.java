@@ -1,11 +1,16 @@
 package com.taskqueue.www.model;
 
+import com.taskqueue.www.enums.TaskPriority;
 import jakarta.persistence.*;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_dlq_status_id", columnList = "status, id"), // keyset paging for bulk re-drive
+        @Index(name = "idx_dlq_status_fingerprint", columnList = "status, fingerprint, id") // grouped views
+})
 @Data
 public class DeadLetterQueue {
 
@@ -15,6 +20,14 @@ public class DeadLetterQueue {
 
     private Long originalTaskId;
 
+    // Copied from the task, so a re-drive keeps them after it is archived or deleted
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    private TaskPriority priority;
+
+    private Integer maxRetries;
+
     @Column(length = 5000)
     private String payload;
 
@@ -29,4 +42,11 @@ public class DeadLetterQueue {
 
     @Column(length = 1000)
     private String resolution; // Manual resolution notes
+
+    private String taskType;
+
+    private String errorClass;
+
+    @Column(length = 32)
+    private String fingerprint; // type + error class + normalized message, see ErrorFingerprinter
 }
\ No newline at end of file
@@ -20,12 +20,22 @@ public class OutboxEvent {
     @Column(name = "task_id")
     private Long taskId;   // ✅ ADD THIS
 
+    private Long userId; // task owner, carried as a header for fair scheduling
+
+    private String taskType; // null on rows written in the legacy v1 envelope format
+
     @Column(columnDefinition = "TEXT", nullable = false)
     private String payload;
 
+    private String messageKey; // Kafka record key, see MessageKeyResolver
+
+    private String topic; // target topic, see TopicRouter; null on rows written before routing
+
     @Column(nullable = false)
-    private String status;
+    private String status; // NEW, IN_FLIGHT, SENT
 
     @Column(nullable = false)
     private LocalDateTime createdAt;
+
+    private LocalDateTime claimedAt; // set when a publisher moves the row to IN_FLIGHT
 }
\ No newline at end of file
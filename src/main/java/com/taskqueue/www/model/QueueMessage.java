@@ -0,0 +1,37 @@
+package com.taskqueue.www.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued task for queue.transport=postgres, see PostgresTaskTransport.
+ * The row is deleted once a worker has run the task.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_queue_message_visible", columnList = "visible_at, id"))
+@Data
+public class QueueMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long taskId;
+
+    private String taskType;
+
+    private Long userId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime visibleAt; // hidden from other workers until then while being processed
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private Integer receiveCount = 0;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
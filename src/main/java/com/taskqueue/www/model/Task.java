@@ -1,11 +1,16 @@
 package com.taskqueue.www.model;
 
+import com.taskqueue.www.enums.TaskPriority;
 import jakarta.persistence.*;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_next_attempt", columnList = "next_attempt_at"),
+        @Index(name = "idx_task_lease", columnList = "status, lease_expires_at")
+})
 @Data
 public class Task {
 
@@ -19,21 +24,36 @@ public class Task {
 
     private String status; // PENDING, PROCESSING, DONE, FAILED, CANCELLED
 
+    @Enumerated(EnumType.STRING)
+    private TaskPriority priority = TaskPriority.NORMAL; // picks the topic lane, see TopicRouter
+
     private Integer retryCount = 0;
 
-    private Integer maxRetries = 3;
+    private Integer maxRetries; // per-task override; null = the type's RetryPolicy decides
+
+    private Long retryBackoffMs; // delay before the pending retry, feeds decorrelated jitter
 
     @Column(length = 1000)
     private String errorMessage;
 
     private LocalDateTime lastAttemptAt;
 
+    private LocalDateTime nextAttemptAt; // set while a retry is scheduled, see RetryScheduler
+
+    private String leaseOwner; // node running the task while PROCESSING, see TaskLeaseManager
+
+    private LocalDateTime leaseExpiresAt;
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
     private Long retriedFromDlqId; // Track if this task was retried from DLQ
 
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version = 0L;
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -0,0 +1,54 @@
+package com.taskqueue.www.model;
+
+import com.taskqueue.www.enums.TaskPriority;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a Task that reached a terminal state (DONE, CANCELLED).
+ * Rows are moved here by RetentionService and keep their original id. Every
+ * column of task except the lease is copied; keep TaskRepository.archiveTerminalTasks
+ * in step when Task gains one.
+ */
+@Entity
+@Table(name = "task_archive")
+@Data
+public class TaskArchive {
+
+    @Id
+    private Long id;
+
+    private Long userId;
+
+    private String payload;
+
+    private String status;
+
+    @Enumerated(EnumType.STRING)
+    private TaskPriority priority;
+
+    private Integer retryCount;
+
+    private Integer maxRetries;
+
+    private Long retryBackoffMs;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    private LocalDateTime lastAttemptAt;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private Long retriedFromDlqId;
+
+    private Long version;
+
+    private LocalDateTime archivedAt;
+}
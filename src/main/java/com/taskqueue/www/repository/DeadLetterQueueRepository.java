@@ -1,15 +1,82 @@
 package com.taskqueue.www.repository;
 
+import com.taskqueue.www.dto.DLQGroupDTO;
 import com.taskqueue.www.model.DeadLetterQueue;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface DeadLetterQueueRepository extends JpaRepository<DeadLetterQueue, Long> {
 
     Page<DeadLetterQueue> findByStatus(String status, Pageable pageable);
 
     long countByStatus(String status);
+
+    // Rows from before fingerprinting, oldest first; see DLQFingerprintBackfill
+    List<DeadLetterQueue> findTop500ByFingerprintIsNullAndIdGreaterThanOrderByIdAsc(Long afterId);
+
+    /**
+     * Keyset page for bulk re-drive: the next ids after {@code afterId} in one status.
+     * Waits for rows another transaction holds (e.g. a single retry) rather than
+     * skipping them: the cursor moves past every id returned, so a skipped row would
+     * never be re-driven. Rows that left the status meanwhile drop out on the re-check.
+     */
+    @Query(value = """
+            SELECT id FROM dead_letter_queue
+            WHERE status = :status AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE
+            """, nativeQuery = true)
+    List<Long> lockNextIdsByStatus(@Param("status") String status, @Param("afterId") long afterId,
+                                   @Param("limit") int limit);
+
+    // Same, limited to one error group
+    @Query(value = """
+            SELECT id FROM dead_letter_queue
+            WHERE status = :status AND fingerprint = :fingerprint AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE
+            """, nativeQuery = true)
+    List<Long> lockNextIdsByStatusAndFingerprint(@Param("status") String status,
+                                                 @Param("fingerprint") String fingerprint,
+                                                 @Param("afterId") long afterId, @Param("limit") int limit);
+
+    long countByStatusAndFingerprint(String status, String fingerprint);
+
+    /**
+     * One row per error group in a status, largest first. A single aggregate
+     * over the (status, fingerprint) index instead of paging every entry.
+     */
+    @Query(value = "SELECT new com.taskqueue.www.dto.DLQGroupDTO(d.fingerprint, MIN(d.taskType), " +
+            "MIN(d.errorClass), COUNT(d), MIN(d.failedAt), MAX(d.failedAt), MIN(d.lastError)) " +
+            "FROM DeadLetterQueue d WHERE d.status = :status " +
+            "GROUP BY d.fingerprint ORDER BY COUNT(d) DESC",
+            // COUNT(DISTINCT) ignores NULL, but GROUP BY keeps the unfingerprinted rows as a group
+            countQuery = "SELECT COUNT(DISTINCT COALESCE(d.fingerprint, '')) FROM DeadLetterQueue d " +
+                    "WHERE d.status = :status")
+    Page<DLQGroupDTO> findGroups(@Param("status") String status, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.status = 'RESOLVED', d.resolution = :resolution " +
+            "WHERE d.status = :status AND d.fingerprint = :fingerprint")
+    int resolveByFingerprint(@Param("status") String status, @Param("fingerprint") String fingerprint,
+                             @Param("resolution") String resolution);
+
+    @Modifying
+    @Query("DELETE FROM DeadLetterQueue d WHERE d.status = :status AND d.fingerprint = :fingerprint")
+    int deleteByFingerprint(@Param("status") String status, @Param("fingerprint") String fingerprint);
+
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.status = 'RETRYING', " +
+            "d.resolution = COALESCE(:resolution, d.resolution) WHERE d.id IN :ids")
+    int markRetrying(@Param("ids") List<Long> ids, @Param("resolution") String resolution);
 }
\ No newline at end of file
@@ -2,13 +2,65 @@ package com.taskqueue.www.repository;
 
 import com.taskqueue.www.model.OutboxEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
 
     List<OutboxEvent> findByStatus(String status);
+    long countByStatus(String status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") String status);
+
     Optional<OutboxEvent> findTopByTaskIdOrderByCreatedAtDesc(Long taskId);
 
-}
\ No newline at end of file
+    /**
+     * Locks up to {@code limit} NEW rows for the calling transaction.
+     * Rows already locked by another publisher are skipped, not waited on.
+     */
+    @Query(value = """
+            SELECT * FROM outbox_event
+            WHERE status = 'NEW'
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OutboxEvent e SET e.status = 'IN_FLIGHT', e.claimedAt = :now WHERE e.id IN :ids")
+    int markInFlight(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'SENT', e.claimedAt = null WHERE e.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'NEW', e.claimedAt = null " +
+            "WHERE e.id IN :ids AND e.status = 'IN_FLIGHT'")
+    int releaseClaims(@Param("ids") List<Long> ids);
+
+    /**
+     * Hands claims left behind by a crashed publisher back to the pool.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'NEW', e.claimedAt = null " +
+            "WHERE e.status = 'IN_FLIGHT' AND e.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM outbox_event
+            WHERE id IN (
+                SELECT id FROM outbox_event
+                WHERE status = 'SENT' AND created_at < :cutoff
+                LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
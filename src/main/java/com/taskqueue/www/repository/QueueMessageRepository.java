@@ -0,0 +1,39 @@
+package com.taskqueue.www.repository;
+
+import com.taskqueue.www.model.QueueMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface QueueMessageRepository extends JpaRepository<QueueMessage, Long> {
+
+    /**
+     * Takes up to {@code limit} visible messages and hides them until
+     * {@code invisibleUntil}. Rows locked by another worker are skipped; a worker
+     * that dies mid-task leaves its messages to reappear after the timeout.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE queue_message
+            SET visible_at = :invisibleUntil, receive_count = receive_count + 1
+            WHERE id IN (
+                SELECT id FROM queue_message
+                WHERE visible_at <= :now
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<QueueMessage> receive(@Param("now") LocalDateTime now,
+                               @Param("invisibleUntil") LocalDateTime invisibleUntil,
+                               @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM QueueMessage m WHERE m.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
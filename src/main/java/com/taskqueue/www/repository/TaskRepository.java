@@ -4,7 +4,13 @@ import com.taskqueue.www.model.Task;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -23,5 +29,177 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     long countByUserId(Long userId);
 
     long countByStatus(String status);
+
+    /**
+     * Locks retries that are due; rows claimed by another node are skipped.
+     */
+    @Query(value = """
+            SELECT * FROM task
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Task> lockDueRetries(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /* ---- Guarded status transitions: each is one statement that only applies
+            if the row is still in an expected state, and bumps the version. ---- */
+
+    /**
+     * PENDING (and due) or PROCESSING with a dead lease -> PROCESSING, leased to {@code owner}.
+     * Taking over a dead lease counts the crashed attempt, as the reaper does.
+     * Returns the claimed rows, so the caller needs no separate load.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE task
+            SET status = 'PROCESSING', last_attempt_at = :now, updated_at = :now,
+                retry_count = retry_count + CASE WHEN status = 'PROCESSING' THEN 1 ELSE 0 END,
+                lease_owner = :owner, lease_expires_at = :expiresAt, version = version + 1
+            WHERE id IN (:ids)
+              AND ((status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= :now))
+                   OR (status = 'PROCESSING' AND (lease_expires_at IS NULL OR lease_expires_at < :now)))
+            RETURNING *
+            """, nativeQuery = true)
+    List<Task> claimForProcessing(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now,
+                                  @Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * PROCESSING (held by {@code owner}) -> DONE. Returns the ids that made it.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE task
+            SET status = 'DONE', error_message = NULL, updated_at = :now,
+                lease_owner = NULL, lease_expires_at = NULL, version = version + 1
+            WHERE id IN (:ids) AND status = 'PROCESSING' AND lease_owner = :owner
+            RETURNING id
+            """, nativeQuery = true)
+    List<Long> completeTasks(@Param("ids") List<Long> ids, @Param("owner") String owner,
+                             @Param("now") LocalDateTime now);
+
+    // PROCESSING (held by owner) -> PENDING with a retry due at nextAttemptAt
+    @Modifying
+    @Query("UPDATE Task t SET t.status = 'PENDING', t.retryCount = :retryCount, t.errorMessage = :error, " +
+            "t.lastAttemptAt = :now, t.updatedAt = :now, t.nextAttemptAt = :nextAttemptAt, " +
+            "t.retryBackoffMs = :backoffMs, " +
+            "t.leaseOwner = null, t.leaseExpiresAt = null, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.status = 'PROCESSING' AND t.leaseOwner = :owner")
+    int scheduleRetry(@Param("id") Long id, @Param("owner") String owner,
+                      @Param("retryCount") int retryCount, @Param("error") String error,
+                      @Param("now") LocalDateTime now, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("backoffMs") long backoffMs);
+
+    // PROCESSING (held by owner) -> FAILED
+    @Modifying
+    @Query("UPDATE Task t SET t.status = 'FAILED', t.retryCount = :retryCount, t.errorMessage = :error, " +
+            "t.lastAttemptAt = :now, t.updatedAt = :now, " +
+            "t.leaseOwner = null, t.leaseExpiresAt = null, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.status = 'PROCESSING' AND t.leaseOwner = :owner")
+    int failTask(@Param("id") Long id, @Param("owner") String owner,
+                 @Param("retryCount") int retryCount, @Param("error") String error,
+                 @Param("now") LocalDateTime now);
+
+    // Any of the from statuses -> to; used for user-driven cancel
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.status = :to, t.updatedAt = :now, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.status IN :from")
+    int transition(@Param("id") Long id, @Param("from") List<String> from,
+                   @Param("to") String to, @Param("now") LocalDateTime now);
+
+    // Any of the from statuses -> PENDING, due immediately, with its retries reset; used for user-driven retry
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.status = 'PENDING', t.nextAttemptAt = null, t.updatedAt = :now, " +
+            "t.retryCount = 0, t.retryBackoffMs = null, " +
+            "t.version = t.version + 1 WHERE t.id = :id AND t.status IN :from")
+    int requeue(@Param("id") Long id, @Param("from") List<String> from, @Param("now") LocalDateTime now);
+
+    /**
+     * Rows still locked by an open consumer transaction are skipped rather than waited on;
+     * the next heartbeat catches them.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE task SET lease_expires_at = :expiresAt
+            WHERE id IN (
+                SELECT id FROM task
+                WHERE id IN (:ids) AND status = 'PROCESSING' AND lease_owner = :owner
+                FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int extendLeases(@Param("ids") List<Long> ids, @Param("owner") String owner,
+                     @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Hands PROCESSING tasks whose lease expired back to RetryScheduler. Tasks from
+     * before leases existed have no expiry and are judged by last_attempt_at instead.
+     * The crashed attempt counts toward retry_count; TaskProcessor sends a task whose
+     * crashes have used up its retries to the DLQ instead of running it again.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'PENDING', next_attempt_at = :now, retry_count = retry_count + 1,
+                lease_owner = NULL, lease_expires_at = NULL, updated_at = :now,
+                version = version + 1
+            WHERE id IN (
+                SELECT id FROM task
+                WHERE status = 'PROCESSING'
+                  AND (lease_expires_at < :now
+                       OR (lease_expires_at IS NULL AND last_attempt_at < :legacyCutoff))
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int requeueExpiredLeases(@Param("now") LocalDateTime now,
+                             @Param("legacyCutoff") LocalDateTime legacyCutoff,
+                             @Param("limit") int limit);
+
+    /**
+     * Moves up to {@code limit} terminal tasks last touched before {@code cutoff}
+     * into task_archive in a single statement.
+     */
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM task
+                WHERE id IN (
+                    SELECT id FROM task
+                    WHERE status IN ('DONE', 'CANCELLED') AND updated_at < :cutoff
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING id, user_id, payload, status, priority, retry_count, max_retries,
+                          retry_backoff_ms, error_message, last_attempt_at, next_attempt_at,
+                          created_at, updated_at, retried_from_dlq_id, version
+            )
+            INSERT INTO task_archive (id, user_id, payload, status, priority, retry_count, max_retries,
+                                      retry_backoff_ms, error_message, last_attempt_at, next_attempt_at,
+                                      created_at, updated_at, retried_from_dlq_id, version, archived_at)
+            SELECT id, user_id, payload, status, priority, retry_count, max_retries,
+                   retry_backoff_ms, error_message, last_attempt_at, next_attempt_at,
+                   created_at, updated_at, retried_from_dlq_id, version, now()
+            FROM moved
+            """, nativeQuery = true)
+    int archiveTerminalTasks(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * One fresh PENDING task per DLQ row, in one statement. Owner, priority and
+     * max retries come from the DLQ row; rows dead-lettered before it stored them
+     * fall back to the original task, live or archived.
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO task (user_id, payload, status, priority, retry_count, max_retries,
+                              created_at, updated_at, retried_from_dlq_id, version)
+            SELECT COALESCE(d.user_id, o.user_id, a.user_id), d.payload, 'PENDING',
+                   COALESCE(d.priority, o.priority, a.priority, 'NORMAL'), 0,
+                   COALESCE(d.max_retries, o.max_retries, a.max_retries),
+                   :now, :now, d.id, 0
+            FROM dead_letter_queue d
+            LEFT JOIN task o ON o.id = d.original_task_id
+            LEFT JOIN task_archive a ON a.id = d.original_task_id
+            WHERE d.id IN (:dlqIds)
+            ORDER BY d.id
+            RETURNING *
+            """, nativeQuery = true)
+    List<Task> insertRedriveTasks(@Param("dlqIds") List<Long> dlqIds, @Param("now") LocalDateTime now);
 }
 
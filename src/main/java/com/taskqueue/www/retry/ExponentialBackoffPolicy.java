@@ -0,0 +1,67 @@
+package com.taskqueue.www.retry;
+
+import com.taskqueue.www.enums.RetryJitter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with a cap and optional jitter.
+ *
+ * DECORRELATED picks each delay uniformly between the base and the previous delay
+ * times the multiplier, so tasks that failed together drift apart on every retry
+ * instead of hitting a recovering dependency at the same instants.
+ */
+public class ExponentialBackoffPolicy implements RetryPolicy {
+
+    private final String type;
+    private final int maxRetries;
+    private final long baseMs;
+    private final double multiplier;
+    private final long capMs;
+    private final RetryJitter jitter;
+
+    public ExponentialBackoffPolicy(String type, int maxRetries, long baseMs, double multiplier,
+                                    long capMs, RetryJitter jitter) {
+        if (baseMs <= 0 || multiplier < 1 || capMs < baseMs) {
+            throw new IllegalArgumentException("Invalid retry policy for " + type
+                    + ": need base > 0, multiplier >= 1 and cap >= base");
+        }
+        this.type = type;
+        this.maxRetries = maxRetries;
+        this.baseMs = baseMs;
+        this.multiplier = multiplier;
+        this.capMs = capMs;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public long backoffMs(int retry, long previousBackoffMs) {
+        if (retry <= 0) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (jitter) {
+            case NONE -> exponential(retry);
+            case FULL -> random.nextLong(exponential(retry) + 1);
+            case DECORRELATED -> {
+                long previous = retry == 1 || previousBackoffMs < baseMs ? baseMs : previousBackoffMs;
+                long upper = (long) Math.min(capMs, previous * multiplier);
+                yield upper <= baseMs ? baseMs : random.nextLong(baseMs, upper + 1);
+            }
+        };
+    }
+
+    private long exponential(int retry) {
+        return (long) Math.min(capMs, baseMs * Math.pow(multiplier, retry - 1));
+    }
+}
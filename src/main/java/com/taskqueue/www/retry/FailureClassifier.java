@@ -0,0 +1,160 @@
+package com.taskqueue.www.retry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.taskqueue.www.enums.FailureKind;
+import jakarta.mail.MessagingException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Decides whether a handler failure is worth retrying.
+ *
+ * - TaskFailureException: whatever the handler says.
+ * - Bad input (IllegalArgumentException, unparseable JSON): PERMANENT.
+ * - HTTP: 429, and 503 with Retry-After, are THROTTLED; 408 and 5xx TRANSIENT;
+ *   any other 4xx PERMANENT.
+ * - SMTP reply codes: 421 THROTTLED, other 4xx TRANSIENT, 5xx PERMANENT;
+ *   authentication and message-building errors PERMANENT.
+ * - Everything else (I/O, timeouts, unknown): TRANSIENT.
+ */
+@Component
+public class FailureClassifier {
+
+    public record Classification(FailureKind kind, Duration retryAfter) {
+
+        static Classification of(FailureKind kind) {
+            return new Classification(kind, null);
+        }
+    }
+
+    public Classification classify(Exception exception) {
+        // The outermost classifiable cause decides, e.g. a MailSendException wrapping an SMTP reply
+        for (Throwable t : causes(exception)) {
+            Classification classification = classifyOne(t);
+            if (classification != null) {
+                return classification;
+            }
+        }
+        return Classification.of(FailureKind.TRANSIENT);
+    }
+
+    private Classification classifyOne(Throwable t) {
+        if (t instanceof TaskFailureException failure) {
+            return new Classification(failure.getKind(), failure.getRetryAfter());
+        }
+        if (t instanceof IllegalArgumentException || t instanceof JsonProcessingException) {
+            return Classification.of(FailureKind.PERMANENT);
+        }
+        if (t instanceof HttpStatusCodeException http) {
+            return classifyHttp(http);
+        }
+        if (t instanceof MailAuthenticationException
+                || t instanceof MailParseException
+                || t instanceof MailPreparationException) {
+            return Classification.of(FailureKind.PERMANENT);
+        }
+        Integer smtpCode = smtpReturnCode(t);
+        if (smtpCode != null) {
+            return classifySmtp(smtpCode);
+        }
+        return null;
+    }
+
+    private Classification classifyHttp(HttpStatusCodeException http) {
+        int status = http.getStatusCode().value();
+        Duration retryAfter = retryAfter(http.getResponseHeaders());
+
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || (status == HttpStatus.SERVICE_UNAVAILABLE.value() && retryAfter != null)) {
+            return new Classification(FailureKind.THROTTLED, retryAfter);
+        }
+        if (status == HttpStatus.REQUEST_TIMEOUT.value() || status >= 500) {
+            return Classification.of(FailureKind.TRANSIENT);
+        }
+        return Classification.of(FailureKind.PERMANENT);
+    }
+
+    private Classification classifySmtp(int code) {
+        if (code == 421) {
+            return Classification.of(FailureKind.THROTTLED);
+        }
+        return Classification.of(code >= 500 ? FailureKind.PERMANENT : FailureKind.TRANSIENT);
+    }
+
+    private Integer smtpReturnCode(Throwable t) {
+        if (t instanceof SMTPSendFailedException e) {
+            return e.getReturnCode();
+        }
+        if (t instanceof SMTPAddressFailedException e) {
+            return e.getReturnCode();
+        }
+        if (t instanceof SMTPSenderFailedException e) {
+            return e.getReturnCode();
+        }
+        return null;
+    }
+
+    // Retry-After is either delta-seconds or an HTTP-date
+    private Duration retryAfter(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+            // fall through to the date form
+        }
+        try {
+            Duration until = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return until.isNegative() ? Duration.ZERO : until;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Cause chain plus the per-message and next-exception links mail errors hide behind
+    private Iterable<Throwable> causes(Throwable root) {
+        Map<Throwable, Boolean> seen = new IdentityHashMap<>();
+        Deque<Throwable> pending = new ArrayDeque<>();
+        Deque<Throwable> ordered = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Throwable t = pending.poll();
+            if (t == null || seen.put(t, Boolean.TRUE) != null) {
+                continue;
+            }
+            ordered.add(t);
+            if (t.getCause() != null) {
+                pending.add(t.getCause());
+            }
+            if (t instanceof MessagingException messaging && messaging.getNextException() != null) {
+                pending.add(messaging.getNextException());
+            }
+            if (t instanceof MailSendException send) {
+                pending.addAll(send.getFailedMessages().values());
+            }
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,44 @@
+package com.taskqueue.www.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps retries at a fraction of fresh traffic for one task type. Every first
+ * attempt deposits {@code ratio} tokens, every retry withdraws one; a small
+ * floor refills over time so a quiet type can still retry.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double floorPerNano;
+    private final double capacity;
+    private double balance;
+    private long lastRefill = System.nanoTime();
+
+    RetryBudget(double ratio, double minPerSecond, double capacity) {
+        this.ratio = ratio;
+        this.floorPerNano = minPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, capacity);
+        this.balance = this.capacity;
+    }
+
+    synchronized void deposit() {
+        refill();
+        balance = Math.min(capacity, balance + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        refill();
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        balance = Math.min(capacity, balance + (now - lastRefill) * floorPerNano);
+        lastRefill = now;
+    }
+}
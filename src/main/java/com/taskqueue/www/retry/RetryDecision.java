@@ -0,0 +1,21 @@
+package com.taskqueue.www.retry;
+
+/**
+ * Outcome of a failed attempt: retry after {@code delayMs}, or give up (DLQ).
+ * {@code deferred} marks retries pushed to the cap because the type's retry
+ * budget was spent.
+ */
+public record RetryDecision(boolean retry, long delayMs, boolean deferred) {
+
+    public static RetryDecision giveUp() {
+        return new RetryDecision(false, 0, false);
+    }
+
+    public static RetryDecision after(long delayMs) {
+        return new RetryDecision(true, delayMs, false);
+    }
+
+    public static RetryDecision deferred(long delayMs) {
+        return new RetryDecision(true, delayMs, true);
+    }
+}
@@ -0,0 +1,21 @@
+package com.taskqueue.www.retry;
+
+/**
+ * How a task type is retried. Implement as a bean to replace the configured
+ * policy for one type; all other types get an ExponentialBackoffPolicy built
+ * from retry.policy.* (see RetryPolicyRegistry).
+ */
+public interface RetryPolicy {
+
+    // Task type this policy applies to
+    String getType();
+
+    // Retries after the first attempt; Task.maxRetries overrides it per task
+    int maxRetries();
+
+    /**
+     * Delay before retry number {@code retry} (1-based). {@code previousBackoffMs} is
+     * the delay used before the previous retry, 0 on the first one.
+     */
+    long backoffMs(int retry, long previousBackoffMs);
+}
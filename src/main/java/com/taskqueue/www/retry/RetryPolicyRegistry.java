@@ -0,0 +1,115 @@
+package com.taskqueue.www.retry;
+
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.enums.RetryJitter;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.retry.FailureClassifier.Classification;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Resolves the retry policy and retry budget for a task type.
+ *
+ * Policies come from RetryPolicy beans, else from config: retry.policy.* are the
+ * defaults and retry.policy.<TYPE>.* override them per type, e.g.
+ * retry.policy.WEBHOOK.cap-ms=600000. Task.maxRetries, when set, wins over the
+ * policy's max-retries for that task.
+ */
+@Slf4j
+@Component
+public class RetryPolicyRegistry {
+
+    private static final String PREFIX = "retry.policy.";
+
+    private final Environment environment;
+    private final Map<String, RetryPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryPolicyRegistry(List<RetryPolicy> customPolicies, Environment environment) {
+        this.environment = environment;
+        for (RetryPolicy policy : customPolicies) {
+            policies.put(policy.getType(), policy);
+            log.info("Registered retry policy for type: {} ({})", policy.getType(), policy.getClass().getSimpleName());
+        }
+    }
+
+    public RetryPolicy getPolicy(String type) {
+        return policies.computeIfAbsent(type, this::createPolicy);
+    }
+
+    // Retries this task may use after its first attempt
+    public int maxRetries(Task task, String type) {
+        return task.getMaxRetries() != null ? task.getMaxRetries() : getPolicy(type).maxRetries();
+    }
+
+    // Fresh work funds the retry budget; called once per first attempt
+    public void recordFirstAttempt(String type) {
+        budget(type).deposit();
+    }
+
+    /**
+     * Decides what happens after attempt number {@code attempts} of {@code task} failed.
+     * PERMANENT failures are never retried. THROTTLED ones wait for the dependency's
+     * Retry-After (capped at retry.policy.max-retry-after-ms) and skip the budget.
+     * Other retries beyond the type's budget are not dropped: they are deferred to
+     * retry.policy.budget-deferral-ms, so a storm drains slowly instead of amplifying.
+     */
+    public RetryDecision decide(Task task, String type, int attempts, Classification failure) {
+        if (failure.kind() == FailureKind.PERMANENT) {
+            return RetryDecision.giveUp();
+        }
+
+        RetryPolicy policy = getPolicy(type);
+        if (attempts > maxRetries(task, type)) {
+            return RetryDecision.giveUp();
+        }
+
+        long previous = task.getRetryBackoffMs() != null ? task.getRetryBackoffMs() : 0;
+        long delayMs = policy.backoffMs(attempts, previous);
+
+        if (failure.kind() == FailureKind.THROTTLED) {
+            if (failure.retryAfter() != null) {
+                long maxRetryAfter = property(type, "max-retry-after-ms", Long.class, 3600000L);
+                delayMs = Math.min(failure.retryAfter().toMillis(), maxRetryAfter);
+            }
+            return RetryDecision.after(delayMs);
+        }
+
+        if (!budget(type).tryWithdraw()) {
+            long deferral = property(type, "budget-deferral-ms", Long.class, 300000L);
+            // Spread deferred retries over the second half of the window
+            return RetryDecision.deferred(Math.max(delayMs,
+                    ThreadLocalRandom.current().nextLong(deferral / 2, deferral + 1)));
+        }
+        return RetryDecision.after(delayMs);
+    }
+
+    private RetryPolicy createPolicy(String type) {
+        return new ExponentialBackoffPolicy(
+                type,
+                property(type, "max-retries", Integer.class, 3),
+                property(type, "base-ms", Long.class, 5000L),
+                property(type, "multiplier", Double.class, 3d),
+                property(type, "cap-ms", Long.class, 300000L),
+                property(type, "jitter", RetryJitter.class, RetryJitter.DECORRELATED));
+    }
+
+    private RetryBudget budget(String type) {
+        return budgets.computeIfAbsent(type, t -> new RetryBudget(
+                property(t, "budget-ratio", Double.class, 0.2),
+                property(t, "budget-min-per-second", Double.class, 10d),
+                property(t, "budget-burst", Double.class, 100d)));
+    }
+
+    // retry.policy.<TYPE>.<key>, then retry.policy.<key>, then the default
+    private <T> T property(String type, String key, Class<T> target, T defaultValue) {
+        T value = environment.getProperty(PREFIX + type + "." + key, target);
+        return value != null ? value : environment.getProperty(PREFIX + key, target, defaultValue);
+    }
+}
@@ -0,0 +1,35 @@
+package com.taskqueue.www.retry;
+
+import com.taskqueue.www.enums.FailureKind;
+import lombok.Getter;
+
+import java.io.Serial;
+import java.time.Duration;
+
+/**
+ * Thrown by handlers that know how their failure should be treated, when the
+ * exception they would otherwise throw does not say so (see FailureClassifier).
+ */
+@Getter
+public class TaskFailureException extends Exception {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final FailureKind kind;
+    private final Duration retryAfter; // THROTTLED only, may be null
+
+    public TaskFailureException(FailureKind kind, String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.retryAfter = retryAfter;
+    }
+
+    public static TaskFailureException permanent(String message, Throwable cause) {
+        return new TaskFailureException(FailureKind.PERMANENT, message, null, cause);
+    }
+
+    public static TaskFailureException throttled(String message, Duration retryAfter, Throwable cause) {
+        return new TaskFailureException(FailureKind.THROTTLED, message, retryAfter, cause);
+    }
+}
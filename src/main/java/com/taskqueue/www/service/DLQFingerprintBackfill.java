@@ -0,0 +1,67 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.model.DeadLetterQueue;
+import com.taskqueue.www.repository.DeadLetterQueueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Gives DLQ rows written before fingerprinting a fingerprint (and a task type, read
+ * from the payload when missing), so they show up in the grouped views and bulk
+ * actions instead of as one unfingerprinted pile. Runs once at startup, in chunks of
+ * 500 rows per transaction; rows that already have a fingerprint are never touched,
+ * so every later run finds nothing to do.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DLQFingerprintBackfill {
+
+    private final DeadLetterQueueRepository dlqRepository;
+    private final ErrorFingerprinter errorFingerprinter;
+    private final TaskMessageCodec messageCodec;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long lastId = 0;
+        int filled = 0;
+        try {
+            while (true) {
+                long afterId = lastId;
+                List<DeadLetterQueue> rows = transactionTemplate.execute(status -> {
+                    List<DeadLetterQueue> chunk =
+                            dlqRepository.findTop500ByFingerprintIsNullAndIdGreaterThanOrderByIdAsc(afterId);
+                    chunk.forEach(this::fingerprint);
+                    return dlqRepository.saveAll(chunk);
+                });
+                if (rows == null || rows.isEmpty()) {
+                    break;
+                }
+                filled += rows.size();
+                lastId = rows.get(rows.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            log.error("DLQ fingerprint backfill stopped after {} rows: {}", filled, e.getMessage(), e);
+            return;
+        }
+        if (filled > 0) {
+            log.info("Backfilled fingerprints for {} legacy DLQ rows", filled);
+        }
+    }
+
+    private void fingerprint(DeadLetterQueue dlq) {
+        if (dlq.getTaskType() == null) {
+            dlq.setTaskType(messageCodec.readType(dlq.getPayload()));
+        }
+        dlq.setFingerprint(errorFingerprinter.fingerprint(
+                dlq.getTaskType(), dlq.getErrorClass(), dlq.getLastError()));
+    }
+}
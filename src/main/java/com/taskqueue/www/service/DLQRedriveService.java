@@ -0,0 +1,266 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.dto.RedriveJobDTO;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.repository.DeadLetterQueueRepository;
+import com.taskqueue.www.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk DLQ re-drive as a background job. Rows are walked by id (keyset, never
+ * OFFSET) in chunks of dlq.redrive.chunk-size; each chunk is one short transaction:
+ * lock the next ids, flip them to RETRYING, insert their tasks with one
+ * INSERT ... SELECT and batch-insert the outbox rows. The scheduled outbox poller
+ * publishes them. Throughput is capped at dlq.redrive.rate-per-second so a large
+ * re-drive cannot flood the handlers it is retrying against.
+ *
+ * Jobs run one at a time on this node; progress lives in memory.
+ */
+@Slf4j
+@Service
+public class DLQRedriveService {
+
+    private static final String OUTBOX_INSERT = """
+            INSERT INTO outbox_event (task_id, user_id, task_type, message_key, topic, payload, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final DeadLetterQueueRepository dlqRepository;
+    private final TaskRepository taskRepository;
+    private final OutboxEventFactory outboxEventFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+    private final double ratePerSecond;
+    private final int keepFinished;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dlq-redrive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    public DLQRedriveService(DeadLetterQueueRepository dlqRepository,
+                             TaskRepository taskRepository,
+                             OutboxEventFactory outboxEventFactory,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${dlq.redrive.chunk-size:500}") int chunkSize,
+                             @Value("${dlq.redrive.rate-per-second:200}") double ratePerSecond,
+                             @Value("${dlq.redrive.keep-finished:50}") int keepFinished) {
+        this.dlqRepository = dlqRepository;
+        this.taskRepository = taskRepository;
+        this.outboxEventFactory = outboxEventFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.ratePerSecond = ratePerSecond;
+        this.keepFinished = keepFinished;
+    }
+
+    /* ================= API ================= */
+
+    // fingerprint narrows the job to one error group; null re-drives the whole status
+    public RedriveJobDTO start(String dlqStatus, String fingerprint, String resolution) {
+        Job job = new Job(dlqStatus.toUpperCase(), fingerprint, resolution);
+        job.total = fingerprint != null
+                ? dlqRepository.countByStatusAndFingerprint(job.dlqStatus, fingerprint)
+                : dlqRepository.countByStatus(job.dlqStatus);
+
+        synchronized (jobs) {
+            pruneFinished();
+            jobs.put(job.id, job);
+        }
+        executor.submit(() -> run(job));
+
+        log.info("DLQ re-drive {} queued: {} rows in status {}{}", job.id, job.total, job.dlqStatus,
+                fingerprint != null ? " with fingerprint " + fingerprint : "");
+        return job.toDTO();
+    }
+
+    public Optional<RedriveJobDTO> get(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId)).map(Job::toDTO);
+        }
+    }
+
+    public List<RedriveJobDTO> list() {
+        synchronized (jobs) {
+            return jobs.values().stream()
+                    .sorted(Comparator.comparing((Job j) -> j.createdAt).reversed())
+                    .map(Job::toDTO)
+                    .toList();
+        }
+    }
+
+    // Stops after the chunk in flight; rows already re-driven stay re-driven
+    public Optional<RedriveJobDTO> cancel(String jobId) {
+        synchronized (jobs) {
+            Job job = jobs.get(jobId);
+            if (job == null) {
+                return Optional.empty();
+            }
+            job.cancelled = true;
+            if (job.state.equals("QUEUED")) {
+                job.finish("CANCELLED", "Cancelled before start");
+            }
+            return Optional.of(job.toDTO());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        synchronized (jobs) {
+            jobs.values().forEach(job -> job.cancelled = true);
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /* ================= JOB ================= */
+
+    private void run(Job job) {
+        if (job.cancelled) {
+            return;
+        }
+        job.state = "RUNNING";
+        long startNanos = System.nanoTime();
+
+        try {
+            while (!job.cancelled) {
+                int moved = redriveChunk(job);
+                if (moved == 0) {
+                    break;
+                }
+                job.requeued += moved;
+                pace(job.requeued, startNanos);
+            }
+
+            if (job.cancelled) {
+                job.finish("CANCELLED", "Cancelled after " + job.requeued + " rows");
+            } else {
+                job.finish("COMPLETED", "Re-queued " + job.requeued + " rows");
+            }
+            log.info("DLQ re-drive {} {}: {}", job.id, job.state, job.message);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("CANCELLED", "Interrupted after " + job.requeued + " rows");
+        } catch (Exception e) {
+            log.error("DLQ re-drive {} failed after {} rows: {}", job.id, job.requeued, e.getMessage(), e);
+            job.finish("FAILED", e.getMessage());
+        }
+    }
+
+    // One transaction: lock the next ids past the keyset position, then move them as sets
+    private int redriveChunk(Job job) {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> ids = job.fingerprint != null
+                    ? dlqRepository.lockNextIdsByStatusAndFingerprint(
+                            job.dlqStatus, job.fingerprint, job.lastDlqId, chunkSize)
+                    : dlqRepository.lockNextIdsByStatus(job.dlqStatus, job.lastDlqId, chunkSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            dlqRepository.markRetrying(ids, job.resolution);
+            List<Task> tasks = taskRepository.insertRedriveTasks(ids, LocalDateTime.now());
+            insertOutbox(tasks.stream().map(outboxEventFactory::create).toList());
+
+            job.lastDlqId = ids.get(ids.size() - 1);
+            return ids.size();
+        });
+        return moved != null ? moved : 0;
+    }
+
+    // Identity ids keep Hibernate from batching inserts, so the outbox rows go through JDBC
+    private void insertOutbox(List<OutboxEvent> events) {
+        jdbcTemplate.batchUpdate(OUTBOX_INSERT, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getTaskId());
+            ps.setObject(2, event.getUserId(), Types.BIGINT);
+            ps.setString(3, event.getTaskType());
+            ps.setString(4, event.getMessageKey());
+            ps.setString(5, event.getTopic());
+            ps.setString(6, event.getPayload());
+            ps.setString(7, event.getStatus());
+            ps.setTimestamp(8, Timestamp.valueOf(event.getCreatedAt()));
+        });
+    }
+
+    // Sleeps until the average rate since the start is back under the limit
+    private void pace(long done, long startNanos) throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        long dueNanos = (long) (done / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+        long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private void pruneFinished() {
+        List<String> finished = jobs.values().stream()
+                .filter(j -> j.finishedAt != null)
+                .map(j -> j.id)
+                .toList();
+        int excess = finished.size() - keepFinished;
+        for (int i = 0; i < excess; i++) {
+            jobs.remove(finished.get(i));
+        }
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String dlqStatus;
+        final String fingerprint;
+        final String resolution;
+        final LocalDateTime createdAt = LocalDateTime.now();
+
+        volatile String state = "QUEUED";
+        volatile boolean cancelled;
+        volatile long total;
+        volatile long requeued;
+        volatile long lastDlqId;
+        volatile LocalDateTime finishedAt;
+        volatile String message;
+
+        Job(String dlqStatus, String fingerprint, String resolution) {
+            this.dlqStatus = dlqStatus;
+            this.fingerprint = fingerprint;
+            this.resolution = resolution;
+        }
+
+        void finish(String state, String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.state = state;
+        }
+
+        RedriveJobDTO toDTO() {
+            return new RedriveJobDTO(id, dlqStatus, fingerprint, state, total, requeued,
+                    lastDlqId > 0 ? lastDlqId : null, createdAt, finishedAt, message);
+        }
+    }
+}
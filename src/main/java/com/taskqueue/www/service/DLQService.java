@@ -1,8 +1,7 @@
 package com.taskqueue.www.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.taskqueue.www.dto.*;
+import com.taskqueue.www.handler.PayloadValidator;
 import com.taskqueue.www.model.DeadLetterQueue;
 import com.taskqueue.www.model.OutboxEvent;
 import com.taskqueue.www.model.Task;
@@ -28,7 +27,9 @@ public class DLQService {
     private final DeadLetterQueueRepository dlqRepository;
     private final TaskRepository taskRepository;
     private final OutboxRepository outboxRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxEventFactory outboxEventFactory;
+    private final PayloadValidator payloadValidator;
 
     public Page<DLQResponseDTO> getAllDLQ(Pageable pageable) {
         return dlqRepository.findAll(pageable).map(this::mapToDTO);
@@ -42,6 +43,27 @@ public class DLQService {
         return dlqRepository.findByStatus(status, pageable).map(this::mapToDTO);
     }
 
+    /* ================= ERROR GROUPS ================= */
+
+    public Page<DLQGroupDTO> getGroups(String status, Pageable pageable) {
+        return dlqRepository.findGroups(status.toUpperCase(), pageable);
+    }
+
+    @Transactional
+    public int resolveByFingerprint(String fingerprint, String resolution) {
+        int resolved = dlqRepository.resolveByFingerprint("FAILED", fingerprint,
+                resolution != null ? resolution : "Resolved as group");
+        log.info("Resolved {} DLQ items with fingerprint {}", resolved, fingerprint);
+        return resolved;
+    }
+
+    @Transactional
+    public int deleteByFingerprint(String fingerprint, String status) {
+        int deleted = dlqRepository.deleteByFingerprint(status.toUpperCase(), fingerprint);
+        log.info("Deleted {} {} DLQ items with fingerprint {}", deleted, status, fingerprint);
+        return deleted;
+    }
+
     public DLQStatsDTO getDLQStats() {
         long totalFailed = dlqRepository.countByStatus("FAILED");
         long retrying = dlqRepository.countByStatus("RETRYING");
@@ -60,26 +82,13 @@ public class DLQService {
             }
             dlqRepository.save(dlq);
 
-            // ALWAYS use the updated DLQ payload (not old task)
-            // This ensures any payload updates are used in the retry
-            Task task = createNewTask(dlq.getPayload());
-            task.setRetriedFromDlqId(dlqId); // Track which DLQ this came from
-
-            // Reset task for retry
-            task.setStatus("PENDING");
-            task.setRetryCount(0);
-            task.setErrorMessage(null);
-            Task savedTask = taskRepository.save(task);
+            // Same statement as the bulk re-drive: the DLQ payload (with any updates), and the
+            // owner, priority and max retries the task had when it was dead-lettered
+            Task savedTask = taskRepository.insertRedriveTasks(List.of(dlqId), LocalDateTime.now()).get(0);
 
             // Create outbox event for retry
-            ObjectNode node = objectMapper.createObjectNode();
-            node.put("taskId", savedTask.getId());
-            node.put("payload", savedTask.getPayload());
-
-            OutboxEvent event = new OutboxEvent();
-            event.setPayload(node.toString());
-            event.setStatus("NEW");
-            event.setCreatedAt(LocalDateTime.now());
+            OutboxEvent event = outboxEventFactory.create(savedTask);
+            outboxPublisher.publishAfterCommit(event);
             OutboxEvent savedEvent = outboxRepository.save(event);
 
             log.info("DLQ item {} retried as task {}", dlqId, savedTask.getId());
@@ -113,6 +122,9 @@ public class DLQService {
 
     @Transactional
     public Optional<DLQResponseDTO> updatePayload(Long dlqId, UpdatePayloadRequestDTO request) {
+        // A corrected payload must pass the same checks as a new task
+        payloadValidator.validate(request.getPayload());
+
         return dlqRepository.findById(dlqId).map(dlq -> {
             // Update the payload
             dlq.setPayload(request.getPayload());
@@ -131,80 +143,7 @@ public class DLQService {
         });
     }
 
-    @Transactional
-    public BulkRetryResponseDTO retryAllFailed(RetryRequestDTO request) {
-        return retryByStatus("FAILED", request);
-    }
-
-    @Transactional
-    public BulkRetryResponseDTO retryByStatus(String status, RetryRequestDTO request) {
-        List<DeadLetterQueue> dlqItems = dlqRepository.findAll().stream()
-                .filter(dlq -> status.equalsIgnoreCase(dlq.getStatus()))
-                .toList();
-
-        int totalRetried = 0;
-        int successful = 0;
-        int failed = 0;
-
-        for (DeadLetterQueue dlq : dlqItems) {
-            try {
-                totalRetried++;
-
-                // Update DLQ status
-                dlq.setStatus("RETRYING");
-                if (request != null && request.getResolution() != null) {
-                    dlq.setResolution(request.getResolution());
-                }
-                dlqRepository.save(dlq);
-
-                // ALWAYS use the updated DLQ payload (not old task)
-                Task task = createNewTask(dlq.getPayload());
-                task.setRetriedFromDlqId(dlq.getId()); // Track which DLQ this came from
-
-                // Reset task for retry
-                task.setStatus("PENDING");
-                task.setRetryCount(0);
-                task.setErrorMessage(null);
-                Task savedTask = taskRepository.save(task);
-
-                // Create outbox event for retry
-                ObjectNode node = objectMapper.createObjectNode();
-                node.put("taskId", savedTask.getId());
-                node.put("payload", savedTask.getPayload());
-
-                OutboxEvent event = new OutboxEvent();
-                event.setPayload(node.toString());
-                event.setStatus("NEW");
-                event.setCreatedAt(LocalDateTime.now());
-                outboxRepository.save(event);
-
-                successful++;
-                log.info("DLQ item {} retried successfully as task {}", dlq.getId(), savedTask.getId());
-
-            } catch (Exception e) {
-                failed++;
-                log.error("Failed to retry DLQ item {}: {}", dlq.getId(), e.getMessage());
-            }
-        }
-
-        String message = String.format("Bulk retry completed: %d total, %d successful, %d failed",
-                totalRetried, successful, failed);
-
-        log.info(message);
-
-        return new BulkRetryResponseDTO(totalRetried, successful, failed, message);
-    }
-
     // Helper methods
-    private Task createNewTask(String payload) {
-        Task task = new Task();
-        task.setPayload(payload);
-        task.setStatus("PENDING");
-        task.setRetryCount(0);
-        task.setCreatedAt(LocalDateTime.now());
-        return task;
-    }
-
     private DLQResponseDTO mapToDTO(DeadLetterQueue dlq) {
         DLQResponseDTO dto = new DLQResponseDTO();
         dto.setId(dlq.getId());
@@ -215,6 +154,9 @@ public class DLQService {
         dto.setFailedAt(dlq.getFailedAt());
         dto.setStatus(dlq.getStatus());
         dto.setResolution(dlq.getResolution());
+        dto.setTaskType(dlq.getTaskType());
+        dto.setErrorClass(dlq.getErrorClass());
+        dto.setFingerprint(dlq.getFingerprint());
         return dto;
     }
 
@@ -223,6 +165,7 @@ public class DLQService {
         dto.setId(task.getId());
         dto.setPayload(task.getPayload());
         dto.setStatus(task.getStatus());
+        dto.setPriority(task.getPriority());
 
         if (outbox != null) {
             OutboxStatusDTO outboxStatus = new OutboxStatusDTO();
@@ -0,0 +1,56 @@
+package com.taskqueue.www.service;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Groups DLQ entries that failed the same way. The fingerprint is a hash of the
+ * task type, the exception class and the message with its variable parts (ids,
+ * numbers, quoted values) masked, so "task 123 timed out after 5012ms" and
+ * "task 456 timed out after 4998ms" land in the same group.
+ */
+@Component
+public class ErrorFingerprinter {
+
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    private static final Pattern UUID = Pattern.compile(
+            "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    // 8+ hex chars with at least one digit, so plain words are left alone
+    private static final Pattern HEX = Pattern.compile("\\b(?:0x)?(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,}\\b");
+    private static final Pattern QUOTED = Pattern.compile("'[^']*'|\"[^\"]*\"");
+    private static final Pattern URL = Pattern.compile("\\bhttps?://\\S+");
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    public String fingerprint(String taskType, String errorClass, String message) {
+        String key = taskType + '|' + errorClass + '|' + normalize(message);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Order matters: whole tokens (uuids, urls, emails) go before the digits inside them
+    String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        String normalized = UUID.matcher(message).replaceAll("<uuid>");
+        normalized = URL.matcher(normalized).replaceAll("<url>");
+        normalized = EMAIL.matcher(normalized).replaceAll("<email>");
+        normalized = QUOTED.matcher(normalized).replaceAll("<str>");
+        normalized = HEX.matcher(normalized).replaceAll("<hex>");
+        normalized = NUMBER.matcher(normalized).replaceAll("<n>");
+        normalized = SPACES.matcher(normalized).replaceAll(" ").trim();
+        return normalized.length() > MAX_MESSAGE_LENGTH ? normalized.substring(0, MAX_MESSAGE_LENGTH) : normalized;
+    }
+}
@@ -0,0 +1,28 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.kafka.MessageKeyResolver;
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TopicRouter;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.Task;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the outbox row for a task: wire payload, record key and target topic.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxEventFactory {
+
+    private final TaskMessageCodec messageCodec;
+    private final MessageKeyResolver messageKeyResolver;
+    private final TopicRouter topicRouter;
+
+    public OutboxEvent create(Task task) {
+        OutboxEvent event = messageCodec.toOutboxEvent(task);
+        event.setMessageKey(messageKeyResolver.keyFor(task));
+        event.setTopic(topicRouter.topicFor(event.getTaskType(), task.getPriority()));
+        return event;
+    }
+}
@@ -1,28 +1,186 @@
 package com.taskqueue.www.service;
 
-import com.taskqueue.www.kafka.KafkaProducerService;
+import com.taskqueue.www.metrics.TaskEvents;
 import com.taskqueue.www.model.OutboxEvent;
 import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.transport.TaskTransport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OutboxPublisher {
 
     private final OutboxRepository outboxRepository;
-    private final KafkaProducerService producer;
+    private final TaskTransport transport;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.claim-timeout-ms:180000}")
+    private long claimTimeoutMs;
+
+    @Value("${spring.kafka.producer.properties.delivery.timeout.ms:120000}")
+    private long deliveryTimeoutMs;
+
+    @Value("${outbox.publish-after-commit:true}")
+    private boolean publishAfterCommit;
+
+    @Value("${outbox.after-commit-queue:10000}")
+    private int afterCommitQueue;
+
+    // Sends for the fast path; off the request thread, which a full producer buffer
+    // or an unreachable broker would otherwise block for up to max.block.ms
+    private ThreadPoolExecutor afterCommitSender;
+
+    // A claim released while the producer is still retrying the send is published twice
+    @PostConstruct
+    void checkClaimTimeout() {
+        if (claimTimeoutMs <= deliveryTimeoutMs) {
+            log.warn("outbox.claim-timeout-ms ({}) should exceed the producer delivery.timeout.ms ({}); "
+                    + "sends still in progress will be re-claimed and published again",
+                    claimTimeoutMs, deliveryTimeoutMs);
+        }
+    }
+
+    @PostConstruct
+    void startAfterCommitSender() {
+        afterCommitSender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(afterCommitQueue), r -> {
+                    Thread thread = new Thread(r, "outbox-after-commit");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // The row is already claimed; the poller sends it once the claim times out
+                (r, executor) -> log.warn("After-commit send queue full, leaving the event to the outbox poller"));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        afterCommitSender.shutdown();
+        afterCommitSender.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Fast path for freshly created events. Call before the event is saved: the row
+     * is written already claimed, and it is handed to the queue as soon as the surrounding
+     * transaction commits, on a sender thread so the caller never waits on the broker.
+     * If the send fails or the node dies before the ACK, the claim times out and the
+     * scheduled poller sends it instead.
+     */
+    public void publishAfterCommit(OutboxEvent event) {
+        if (!publishAfterCommit || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        event.setStatus("IN_FLIGHT");
+        event.setClaimedAt(LocalDateTime.now());
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                afterCommitSender.execute(() -> {
+                    try {
+                        send("AFTER_COMMIT", List.of(event));
+                    } catch (Exception e) {
+                        log.warn("After-commit send of outbox event {} failed, leaving it to the outbox poller: {}",
+                                event.getId(), e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    // Safety net: picks up events whose fast-path send failed or never happened
     @Scheduled(fixedRate = 5000)
     public void publishOutboxEvents() {
 
-        List<OutboxEvent> events = outboxRepository.findByStatus("NEW");
+        releaseStaleClaims();
+
+        // Drain the backlog one bounded batch at a time
+        List<OutboxEvent> batch;
+        do {
+            batch = claimBatch();
+            send("POLL", batch);
+        } while (batch.size() == batchSize);
+    }
+
+    private void send(String kind, List<OutboxEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        TaskEvents.OutboxFlush flush = new TaskEvents.OutboxFlush();
+        flush.begin();
+        try {
+            if (batch.size() == 1) {
+                transport.sendTask(batch.get(0));
+            } else {
+                transport.sendTasks(batch);
+            }
+        } finally {
+            if (flush.shouldCommit()) {
+                flush.kind = kind;
+                flush.events = batch.size();
+                flush.payloadSize = batch.stream().mapToLong(e -> TaskEvents.sizeOf(e.getPayload())).sum();
+                flush.firstTaskId = batch.get(0).getTaskId();
+                flush.commit();
+            }
+        }
+    }
+
+    /**
+     * Locks the next page of NEW rows and flips them to IN_FLIGHT in the same
+     * transaction, so concurrent publishers never claim the same row.
+     */
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            List<OutboxEvent> locked = outboxRepository.lockNextBatch(batchSize);
+            if (!locked.isEmpty()) {
+                outboxRepository.markInFlight(
+                        locked.stream().map(OutboxEvent::getId).toList(), now);
+            }
+            return locked;
+        });
+
+        if (batch == null) {
+            return List.of();
+        }
+
+        // Entities are detached after the bulk update; keep them in step with the row
+        batch.forEach(event -> {
+            event.setStatus("IN_FLIGHT");
+            event.setClaimedAt(now);
+        });
+        return batch;
+    }
+
+    private void releaseStaleClaims() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(claimTimeoutMs));
+
+        Integer released = transactionTemplate.execute(
+                status -> outboxRepository.releaseStaleClaims(cutoff));
 
-        for (OutboxEvent event : events) {
-            producer.sendTask(event);   // pass full event
+        if (released != null && released > 0) {
+            log.warn("Released {} stale IN_FLIGHT outbox claims", released);
         }
     }
 }
@@ -0,0 +1,176 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Keeps the hot tables small:
+ * - outbox_event: old daily partitions are detached and dropped (or kept as
+ *   standalone archive tables); on an unpartitioned table, old SENT rows are
+ *   deleted in batches instead. See db/retention.sql and
+ *   db/outbox_event_columns.sql for the migrations.
+ * - task: DONE/CANCELLED tasks are moved into task_archive.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetentionService {
+
+    private static final String OUTBOX_TABLE = "outbox_event";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final OutboxRepository outboxRepository;
+    private final TaskRepository taskRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${retention.outbox-days:7}")
+    private int outboxDays;
+
+    @Value("${retention.task-days:30}")
+    private int taskDays;
+
+    @Value("${retention.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${retention.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    @Value("${retention.drop-detached:true}")
+    private boolean dropDetached;
+
+    @Scheduled(cron = "${retention.cron:0 15 3 * * *}")
+    public void runRetention() {
+        try {
+            purgeOutbox();
+        } catch (Exception e) {
+            log.error("Outbox retention failed: {}", e.getMessage(), e);
+        }
+
+        try {
+            archiveTasks();
+        } catch (Exception e) {
+            log.error("Task archiving failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /* ================= OUTBOX ================= */
+
+    public void purgeOutbox() {
+        LocalDate cutoffDay = LocalDate.now().minusDays(outboxDays);
+
+        if (!isPartitioned(OUTBOX_TABLE)) {
+            int deleted = drainInBatches(() ->
+                    outboxRepository.deleteSentBefore(cutoffDay.atStartOfDay(), batchSize));
+            log.info("Outbox retention: deleted {} SENT rows older than {}", deleted, cutoffDay);
+            return;
+        }
+
+        createUpcomingPartitions();
+
+        for (String partition : listPartitions(OUTBOX_TABLE)) {
+            LocalDate day = partitionDay(partition);
+            if (day == null || !day.isBefore(cutoffDay)) {
+                continue;
+            }
+
+            Boolean pending = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE status <> 'SENT')",
+                    Boolean.class);
+            if (Boolean.TRUE.equals(pending)) {
+                log.warn("Outbox partition {} still holds unsent events — keeping it", partition);
+                continue;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + OUTBOX_TABLE + " DETACH PARTITION " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Outbox retention: dropped partition {}", partition);
+            } else {
+                String archived = partition.replace(OUTBOX_TABLE, OUTBOX_TABLE + "_archive");
+                jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + archived);
+                log.info("Outbox retention: detached partition {} into archive", partition);
+            }
+        }
+    }
+
+    private void createUpcomingPartitions() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS %s_p%s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                    OUTBOX_TABLE, day.format(PARTITION_SUFFIX), OUTBOX_TABLE, day, day.plusDays(1)));
+        }
+    }
+
+    private boolean isPartitioned(String table) {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                        "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = ?)",
+                Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private List<String> listPartitions(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits i " +
+                        "JOIN pg_class parent ON parent.oid = i.inhparent " +
+                        "JOIN pg_class child ON child.oid = i.inhrelid " +
+                        "WHERE parent.relname = ?",
+                String.class, table);
+    }
+
+    // outbox_event_p20240131 -> 2024-01-31; the default partition and anything else -> null
+    private LocalDate partitionDay(String partition) {
+        String prefix = OUTBOX_TABLE + "_p";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /* ================= TASKS ================= */
+
+    public void archiveTasks() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(taskDays);
+        int moved = drainInBatches(() -> taskRepository.archiveTerminalTasks(cutoff, batchSize));
+        log.info("Task retention: archived {} terminal tasks last updated before {}", moved, cutoff);
+    }
+
+    /* ================= INTERNAL ================= */
+
+    // One short transaction per batch so locks and WAL stay bounded
+    private int drainInBatches(BatchStep step) {
+        int total = 0;
+        int affected;
+        do {
+            Integer result = transactionTemplate.execute(status -> step.run());
+            affected = result != null ? result : 0;
+            total += affected;
+        } while (affected == batchSize);
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface BatchStep {
+        int run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable delayed retries. A failed task is saved as PENDING with next_attempt_at
+ * set; this job re-queues due tasks through the outbox. Pending retries are plain
+ * rows, so they survive restarts and cost no thread while they wait.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetryScheduler {
+
+    private final TaskRepository taskRepository;
+    private final OutboxRepository outboxRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxEventFactory outboxEventFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${retry.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${retry.poll-ms:1000}")
+    public void requeueDueRetries() {
+        int requeued;
+        do {
+            requeued = requeueBatch();
+        } while (requeued == batchSize);
+    }
+
+    private int requeueBatch() {
+        Integer count = transactionTemplate.execute(status -> {
+            List<Task> due = taskRepository.lockDueRetries(LocalDateTime.now(), batchSize);
+
+            List<OutboxEvent> events = new ArrayList<>(due.size());
+            for (Task task : due) {
+                task.setNextAttemptAt(null);
+
+                OutboxEvent event = outboxEventFactory.create(task);
+                outboxPublisher.publishAfterCommit(event);
+                events.add(event);
+            }
+            outboxRepository.saveAll(events);
+            return due.size();
+        });
+
+        if (count != null && count > 0) {
+            log.info("Re-queued {} due retries", count);
+        }
+        return count != null ? count : 0;
+    }
+}
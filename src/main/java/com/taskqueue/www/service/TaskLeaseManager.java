@@ -0,0 +1,101 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.repository.TaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leases for PROCESSING tasks. A consumer takes a lease when it starts a task,
+ * heartbeats keep it alive while the handler runs, and the reaper re-queues tasks
+ * whose lease ran out because the node holding them died.
+ */
+@Slf4j
+@Service
+public class TaskLeaseManager {
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+    private final Duration leaseDuration;
+    private final int reapBatchSize;
+
+    // Tasks this node is currently running
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public TaskLeaseManager(TaskRepository taskRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${lease.duration-ms:60000}") long leaseDurationMs,
+                            @Value("${lease.reap-batch-size:500}") int reapBatchSize) {
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseDuration = Duration.ofMillis(leaseDurationMs);
+        this.reapBatchSize = reapBatchSize;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+        log.info("Task lease owner id: {}", owner);
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    public LocalDateTime newExpiry() {
+        return LocalDateTime.now().plus(leaseDuration);
+    }
+
+    public void track(Long taskId) {
+        running.add(taskId);
+    }
+
+    public void release(Long taskId) {
+        running.remove(taskId);
+    }
+
+    /**
+     * Extends the leases of everything still running here, so long tasks such as
+     * big PDF reports are not reaped mid-flight.
+     */
+    @Scheduled(fixedDelayString = "${lease.heartbeat-ms:20000}")
+    public void heartbeat() {
+        if (running.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(running);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    taskRepository.extendLeases(ids, owner, newExpiry()));
+        } catch (Exception e) {
+            log.error("Lease heartbeat failed for {} tasks: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${lease.reap-ms:30000}")
+    public void reapExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime legacyCutoff = now.minus(leaseDuration);
+
+        int total = 0;
+        int reaped;
+        do {
+            Integer result = transactionTemplate.execute(status ->
+                    taskRepository.requeueExpiredLeases(now, legacyCutoff, reapBatchSize));
+            reaped = result != null ? result : 0;
+            total += reaped;
+        } while (reaped == reapBatchSize);
+
+        if (total > 0) {
+            log.warn("Re-queued {} PROCESSING tasks with expired leases", total);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.taskqueue.www.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.handler.TaskBulkhead;
+import com.taskqueue.www.handler.TaskContext;
+import com.taskqueue.www.handler.TaskHandler;
+import com.taskqueue.www.handler.TaskHandlerRegistry;
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.metrics.TaskEvents;
+import com.taskqueue.www.metrics.TaskMetrics;
+import com.taskqueue.www.model.DeadLetterQueue;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.repository.DeadLetterQueueRepository;
+import com.taskqueue.www.repository.TaskRepository;
+import com.taskqueue.www.retry.FailureClassifier;
+import com.taskqueue.www.retry.FailureClassifier.Classification;
+import com.taskqueue.www.retry.RetryDecision;
+import com.taskqueue.www.retry.RetryPolicyRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs delivered task messages: claim, handler, then DONE, retry or DLQ.
+ * Transport-agnostic; the Kafka listeners and the Postgres / in-memory
+ * transports all hand their messages here.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskProcessor {
+
+    // Column lengths of Task.errorMessage and DeadLetterQueue.lastError
+    private static final int ERROR_MESSAGE_LENGTH = 1000;
+    private static final int DLQ_LAST_ERROR_LENGTH = 2000;
+
+    private final TaskRepository taskRepository;
+    private final TaskHandlerRegistry handlerRegistry;
+    private final DeadLetterQueueRepository dlqRepository;
+    private final TaskMessageCodec messageCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskLeaseManager leaseManager;
+    private final TaskMetrics taskMetrics;
+    private final RetryPolicyRegistry retryPolicies;
+    private final FailureClassifier failureClassifier;
+    private final ErrorFingerprinter errorFingerprinter;
+
+    // Type and payload of one delivery, resolved once; a null payload means the task went to the DLQ instead
+    private record Prepared(String type, JsonNode payload) {}
+
+    // Every status change is its own guarded statement; no transaction spans the handler
+    public void process(TaskMessage message) {
+        Long taskId = message.taskId();
+        Task task = null;
+        String taskType = typeOf(message, null);
+        int attempt = 0;
+        String outcome = null;
+        TaskEvents.Consume event = new TaskEvents.Consume();
+        event.begin();
+        try {
+            // Claim and load in one statement. Missing, DONE, CANCELLED, FAILED,
+            // not-yet-due and leased-elsewhere tasks all come back empty.
+            List<Task> claimed = claim(List.of(taskId));
+            if (claimed.isEmpty()) {
+                log.info("Task {} is not claimable (missing, finished, cancelled or running elsewhere) — skipping",
+                        taskId);
+                outcome = "SKIPPED";
+                return;
+            }
+
+            task = claimed.get(0);
+            attempt = task.getRetryCount() + 1;
+            Prepared prepared = prepare(task, message);
+            taskType = prepared.type();
+            if (prepared.payload() == null) {
+                outcome = "FAILED";
+                return;
+            }
+            leaseManager.track(taskId);
+
+            try {
+                executeHandler(task, taskType, prepared.payload(), message);
+
+                // Success! Mark as done
+                if (complete(List.of(taskId)).isEmpty()) {
+                    log.warn("Task {} finished but was cancelled or reaped meanwhile — keeping that state", taskId);
+                    outcome = "SUPERSEDED";
+                    return;
+                }
+                outcome = "DONE";
+
+                taskMetrics.completed(taskType);
+
+                // If this task was retried from DLQ, mark DLQ as resolved
+                updateDLQStatusIfRetried(task);
+
+                log.info("Task {} completed successfully", taskId);
+
+            } catch (Exception handlerException) {
+                // Handler failed - initiate retry logic
+                outcome = "FAILED";
+                handleTaskFailure(task, taskType, handlerException);
+            } finally {
+                leaseManager.release(taskId);
+            }
+
+        } catch (Exception e) {
+            log.error("Critical error processing message for taskId={}: {}",
+                    taskId, e.getMessage(), e);
+
+            // Try to mark task as failed if we hold it
+            if (task != null) {
+                failToDLQ(task, taskType, task.getRetryCount(), "Critical error: " + e.getMessage(), e);
+            }
+        } finally {
+            commit(event, message, taskType, attempt, outcome);
+        }
+    }
+
+    /**
+     * One claim statement for the whole batch, set-based PROCESSING/DONE transitions.
+     * Failures still go through retry/DLQ per task.
+     */
+    public void processBatch(List<TaskMessage> batch) {
+
+        Map<Long, TaskMessage> messages = new LinkedHashMap<>();
+        batch.forEach(m -> messages.put(m.taskId(), m));
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<Task> claimed = claim(new ArrayList<>(messages.keySet()));
+        if (claimed.size() < messages.size()) {
+            log.info("Skipped {} tasks that are not claimable (missing, finished, cancelled or running elsewhere)",
+                    messages.size() - claimed.size());
+        }
+        Map<Long, Prepared> prepared = new LinkedHashMap<>();
+        for (Task task : claimed) {
+            prepared.put(task.getId(), prepare(task, messages.get(task.getId())));
+        }
+        List<Task> runnable = claimed.stream()
+                .filter(t -> prepared.get(t.getId()).payload() != null)
+                .toList();
+        if (runnable.isEmpty()) {
+            return;
+        }
+        runnable.forEach(t -> leaseManager.track(t.getId()));
+
+        List<Task> completed = new ArrayList<>();
+        for (Task task : runnable) {
+            TaskMessage message = messages.get(task.getId());
+            Prepared run = prepared.get(task.getId());
+            String outcome = null;
+            TaskEvents.Consume event = new TaskEvents.Consume();
+            event.begin();
+            try {
+                executeHandler(task, run.type(), run.payload(), message);
+                completed.add(task);
+                outcome = "DONE";
+            } catch (Exception handlerException) {
+                outcome = "FAILED";
+                try {
+                    handleTaskFailure(task, run.type(), handlerException);
+                } catch (Exception e) {
+                    log.error("Failed to record failure for task {}: {}", task.getId(), e.getMessage(), e);
+                } finally {
+                    leaseManager.release(task.getId());
+                }
+            } finally {
+                // Batch mode commits DONE for the whole batch; the event spans this task's own run
+                commit(event, message, run.type(), task.getRetryCount() + 1, outcome);
+            }
+        }
+
+        if (!completed.isEmpty()) {
+            List<Long> done = complete(completed.stream().map(Task::getId).toList());
+            completed.forEach(t -> leaseManager.release(t.getId()));
+            completed.stream()
+                    .filter(t -> done.contains(t.getId()))
+                    .forEach(t -> {
+                        taskMetrics.completed(prepared.get(t.getId()).type());
+                        updateDLQStatusIfRetried(t);
+                    });
+            log.info("Batch completed: {} of {} tasks done", done.size(), messages.size());
+        }
+    }
+
+    /**
+     * Moves the task straight to the DLQ without running it, for messages the transport
+     * gave up on. Skipped, like process(), when the task is not claimable.
+     */
+    public void deadLetter(TaskMessage message, String reason) {
+        List<Task> claimed = claim(List.of(message.taskId()));
+        if (claimed.isEmpty()) {
+            log.info("Task {} is not claimable — dropping its message without moving it to DLQ", message.taskId());
+            return;
+        }
+        Task task = claimed.get(0);
+        failToDLQ(task, typeOf(message, null), task.getRetryCount(), reason, new IllegalStateException(reason));
+    }
+
+    private List<Task> claim(List<Long> taskIds) {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> taskRepository.claimForProcessing(
+                taskIds, now, leaseManager.owner(), leaseManager.newExpiry()));
+    }
+
+    /**
+     * The only parse of the payload; handlers share the tree through TaskContext and
+     * every later step reuses the type resolved here. Sends the task straight to the DLQ,
+     * returning no payload, when:
+     * - the payload is not JSON, which no attempt can fix, so it skips the retry path;
+     * - expired leases have used up its retries (see TaskRepository.requeueExpiredLeases).
+     */
+    private Prepared prepare(Task task, TaskMessage message) {
+        JsonNode payload;
+        try {
+            payload = messageCodec.readPayload(message.payload());
+        } catch (Exception e) {
+            String taskType = typeOf(message, null);
+            log.error("Task {} has a malformed payload: {}. Moving to DLQ.", task.getId(), e.getMessage());
+            failToDLQ(task, taskType, task.getRetryCount(), "Malformed payload: " + e.getMessage(), e);
+            return new Prepared(taskType, null);
+        }
+
+        String taskType = typeOf(message, payload);
+        if (task.getRetryCount() > retryPolicies.maxRetries(task, taskType)) {
+            IllegalStateException crashed = new IllegalStateException("Retries used up after an expired lease ("
+                    + task.getRetryCount() + " attempts); not running the task again");
+            log.error("Task {} used up its retries on expired leases. Moving to DLQ.", task.getId());
+            failToDLQ(task, taskType, task.getRetryCount(), crashed.getMessage(), crashed);
+            return new Prepared(taskType, null);
+        }
+        return new Prepared(taskType, payload);
+    }
+
+    private List<Long> complete(List<Long> taskIds) {
+        return transactionTemplate.execute(status -> taskRepository.completeTasks(
+                taskIds, leaseManager.owner(), LocalDateTime.now()));
+    }
+
+    private void executeHandler(Task task, String taskType, JsonNode payload, TaskMessage message) throws Exception {
+        int attempt = task.getRetryCount() + 1;
+
+        log.info("Processing taskId={} type={} attempt={}", task.getId(), taskType, attempt);
+        if (attempt == 1) {
+            taskMetrics.queueWait(taskType, task.getCreatedAt(), LocalDateTime.now());
+            retryPolicies.recordFirstAttempt(taskType);
+        }
+
+        // Route to appropriate handler, inside that type's bulkhead
+        TaskHandler handler = handlerRegistry.getHandler(taskType);
+        TaskBulkhead bulkhead = handlerRegistry.getBulkhead(taskType);
+        if (handler != null) {
+            TaskContext context = new TaskContext(task.getId(), taskType, attempt, payload);
+            bulkhead.execute(taskMetrics.timed(taskType, TaskEvents.handler(
+                    task.getId(), taskType, attempt, message.payload(), () -> handler.handle(context))));
+        } else {
+            log.warn("No handler found for task type: {}. Using default processing.", taskType);
+            bulkhead.execute(taskMetrics.timed(taskType, TaskEvents.handler(
+                    task.getId(), taskType, attempt, message.payload(), () -> Thread.sleep(2000)))); // Simulate work
+            log.info("Default processing completed for: {}", message.payload());
+        }
+    }
+
+    private void handleTaskFailure(Task task, String taskType, Exception exception) {
+        int attempts = task.getRetryCount() + 1;
+        LocalDateTime now = LocalDateTime.now();
+
+        Classification failure = failureClassifier.classify(exception);
+        log.error("Task {} failed on attempt {} ({}): {}",
+                task.getId(), attempts, failure.kind(), exception.getMessage());
+
+        taskMetrics.failed(taskType, failure.kind());
+        RetryDecision decision = retryPolicies.decide(task, taskType, attempts, failure);
+
+        if (decision.retry()) {
+            // Schedule retry per the type's policy; RetryScheduler re-queues it when due
+            long delayMs = decision.delayMs();
+            int won = transactionTemplate.execute(status -> taskRepository.scheduleRetry(
+                    task.getId(), leaseManager.owner(), attempts,
+                    truncate(exception.getMessage(), ERROR_MESSAGE_LENGTH),
+                    now, now.plus(Duration.ofMillis(delayMs)), delayMs));
+            if (won == 0) {
+                log.warn("Task {} was cancelled or reaped meanwhile — not scheduling a retry", task.getId());
+                return;
+            }
+
+            taskMetrics.retryScheduled(taskType);
+            TaskEvents.retryScheduled(task.getId(), taskType, attempts, delayMs, exception);
+            if (decision.deferred()) {
+                taskMetrics.retryDeferred(taskType);
+                log.warn("Retry budget for {} spent — deferring retry {} of task {} by {}ms",
+                        taskType, attempts, task.getId(), delayMs);
+            } else {
+                log.info("Scheduling retry {} for task {} in {}ms",
+                        attempts, task.getId(), delayMs);
+            }
+
+        } else {
+            // Permanent failure or max retries exceeded - move to DLQ
+            log.error("Task {} failed permanently after {} attempts{}. Moving to DLQ.",
+                    task.getId(), attempts,
+                    failure.kind() == FailureKind.PERMANENT ? " (not retryable)" : "");
+
+            failToDLQ(task, taskType, attempts, exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * PROCESSING (held here) -> FAILED plus a DLQ entry for triage, in one transaction,
+     * so a task is normally never FAILED without its DLQ entry. If that transaction
+     * fails, the task is still failed on its own: left PROCESSING, the reaper would
+     * re-queue it and a DLQ write that always fails (e.g. a row the table rejects)
+     * would loop forever. Only if that fails too is it left to the reaper.
+     */
+    private void failToDLQ(Task task, String taskType, int attempts, String error, Exception exception) {
+        DeadLetterQueue dlq;
+        try {
+            dlq = transactionTemplate.execute(status -> {
+                int won = taskRepository.failTask(task.getId(), leaseManager.owner(), attempts,
+                        truncate(error, ERROR_MESSAGE_LENGTH), LocalDateTime.now());
+                if (won == 0) {
+                    return null;
+                }
+                return dlqRepository.save(deadLetter(task, taskType, attempts, exception));
+            });
+        } catch (Exception e) {
+            failWithoutDLQ(task, taskType, attempts, error, e);
+            return;
+        }
+        if (dlq == null) {
+            log.warn("Task {} was cancelled or reaped meanwhile — not moving it to DLQ", task.getId());
+            return;
+        }
+
+        task.setRetryCount(attempts);
+        taskMetrics.movedToDlq(taskType);
+        TaskEvents.dlqMove(task.getId(), taskType, attempts, task.getPayload(), exception);
+        log.info("Task {} moved to Dead Letter Queue (DLQ ID: {})", task.getId(), dlq.getId());
+    }
+
+    private void failWithoutDLQ(Task task, String taskType, int attempts, String error, Exception dlqFailure) {
+        String reason = "DLQ write failed (" + dlqFailure.getMessage() + "): " + error;
+        Integer won;
+        try {
+            won = transactionTemplate.execute(status -> taskRepository.failTask(task.getId(), leaseManager.owner(),
+                    attempts, truncate(reason, ERROR_MESSAGE_LENGTH), LocalDateTime.now()));
+        } catch (Exception e) {
+            log.error("Failed to move task {} to DLQ or mark it FAILED, leaving it to the lease reaper: {}",
+                    task.getId(), e.getMessage(), e);
+            return;
+        }
+        if (won == null || won == 0) {
+            log.warn("Task {} was cancelled or reaped meanwhile — not marking it FAILED", task.getId());
+            return;
+        }
+
+        task.setRetryCount(attempts);
+        taskMetrics.dlqWriteFailed(taskType);
+        log.error("Task {} marked FAILED without a DLQ entry: {}", task.getId(), dlqFailure.getMessage(), dlqFailure);
+    }
+
+    private DeadLetterQueue deadLetter(Task task, String taskType, int attempts, Exception exception) {
+        String errorClass = exception.getClass().getName();
+
+        DeadLetterQueue dlq = new DeadLetterQueue();
+        dlq.setOriginalTaskId(task.getId());
+        dlq.setUserId(task.getUserId());
+        dlq.setPriority(task.getPriority());
+        dlq.setMaxRetries(task.getMaxRetries());
+        dlq.setPayload(task.getPayload());
+        dlq.setTotalAttempts(attempts);
+        dlq.setLastError(truncate(exception.getMessage(), DLQ_LAST_ERROR_LENGTH));
+        dlq.setFailedAt(LocalDateTime.now());
+        dlq.setStatus("FAILED");
+        dlq.setTaskType(taskType);
+        dlq.setErrorClass(errorClass);
+        dlq.setFingerprint(errorFingerprinter.fingerprint(taskType, errorClass, exception.getMessage()));
+        return dlq;
+    }
+
+    // Error texts are free-form (stack dumps, response bodies); the columns are not
+    private static String truncate(String error, int length) {
+        return error != null && error.length() > length ? error.substring(0, length) : error;
+    }
+
+    // Fields are only filled in for events a recording will keep
+    private void commit(TaskEvents.Consume event, TaskMessage message, String taskType, int attempt, String outcome) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.taskId = message.taskId();
+        event.type = taskType;
+        event.attempt = attempt;
+        event.payloadSize = TaskEvents.sizeOf(message.payload());
+        event.outcome = outcome != null ? outcome : "ERROR";
+        event.commit();
+    }
+
+    // v2 records carry the type in a header; legacy ones only have it inside the parsed payload
+    private String typeOf(TaskMessage message, JsonNode payload) {
+        if (message.type() != null) {
+            return message.type();
+        }
+        return payload != null && payload.has("type") ? payload.get("type").asText() : "DEFAULT";
+    }
+
+    private void updateDLQStatusIfRetried(Task task) {
+        try {
+            // Check if this task was retried from DLQ
+            if (task.getRetriedFromDlqId() != null) {
+                dlqRepository.findById(task.getRetriedFromDlqId()).ifPresent(dlq -> {
+                    dlq.setStatus("RESOLVED");
+                    String resolution = dlq.getResolution() != null
+                            ? dlq.getResolution() + " - Retry successful"
+                            : "Retry successful";
+                    dlq.setResolution(resolution);
+                    dlqRepository.save(dlq);
+
+                    log.info("DLQ item {} marked as RESOLVED after successful retry (task {})",
+                            dlq.getId(), task.getId());
+                });
+            }
+        } catch (Exception e) {
+            log.error("Failed to update DLQ status after successful retry: {}", e.getMessage());
+        }
+    }
+}
\ No newline at end of file
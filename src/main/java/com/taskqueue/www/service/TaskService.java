@@ -1,11 +1,10 @@
 package com.taskqueue.www.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.taskqueue.www.dto.OutboxStatusDTO;
 import com.taskqueue.www.dto.TaskCreateRequestDTO;
 import com.taskqueue.www.dto.TaskResponseDTO;
 import com.taskqueue.www.dto.TaskStatsDTO;
+import com.taskqueue.www.handler.PayloadValidator;
 import com.taskqueue.www.security.CustomUserDetails;
 import com.taskqueue.www.security.SecurityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -20,6 +19,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -27,21 +27,40 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class TaskService {
 
+    private static final int MAX_RETRIES_LIMIT = 20;
+
     private final TaskRepository taskRepository;
     private final OutboxRepository outboxRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxEventFactory outboxEventFactory;
+    private final PayloadValidator payloadValidator;
 
     /* ================= CREATE ================= */
 
+    @Transactional
     public TaskResponseDTO createTask(TaskCreateRequestDTO request) {
 
+        payloadValidator.validate(request.getPayload());
+
         Task task = new Task();
         task.setPayload(request.getPayload());
         task.setStatus("PENDING");
         task.setUserId(SecurityUtils.currentUserId());
+        if (request.getPriority() != null) {
+            task.setPriority(request.getPriority());
+        }
+        if (request.getMaxRetries() != null) {
+            if (request.getMaxRetries() < 0 || request.getMaxRetries() > MAX_RETRIES_LIMIT) {
+                throw new IllegalArgumentException("maxRetries must be between 0 and " + MAX_RETRIES_LIMIT);
+            }
+            task.setMaxRetries(request.getMaxRetries());
+        }
 
         Task saved = taskRepository.save(task);
-        OutboxEvent savedEvent = outboxRepository.save(createOutbox(saved));
+
+        OutboxEvent event = createOutbox(saved);
+        outboxPublisher.publishAfterCommit(event);
+        OutboxEvent savedEvent = outboxRepository.save(event);
 
         return mapToDTO(saved, savedEvent);
     }
@@ -113,9 +132,11 @@ public class TaskService {
     public Optional<TaskResponseDTO> cancelTask(Long id) {
 
         return findAuthorizedTask(id).map(task -> {
-            if ("PENDING".equals(task.getStatus()) || "PROCESSING".equals(task.getStatus())) {
+            // Guarded so a consumer finishing at the same moment cannot overwrite it, or be overwritten
+            int won = taskRepository.transition(
+                    task.getId(), List.of("PENDING", "PROCESSING"), "CANCELLED", LocalDateTime.now());
+            if (won == 1) {
                 task.setStatus("CANCELLED");
-                taskRepository.save(task);
             }
             return mapToDTO(task, findOutboxForTask(task.getId()));
         });
@@ -126,15 +147,19 @@ public class TaskService {
 
         return findAuthorizedTask(id).map(task -> {
 
-            if (!"FAILED".equals(task.getStatus()) && !"CANCELLED".equals(task.getStatus())) {
+            // Re-queued right away, not by RetryScheduler
+            int won = taskRepository.requeue(
+                    task.getId(), List.of("FAILED", "CANCELLED"), LocalDateTime.now());
+            if (won == 0) {
                 return mapToDTO(task, findOutboxForTask(task.getId()));
             }
-
             task.setStatus("PENDING");
-            Task saved = taskRepository.save(task);
+            task.setNextAttemptAt(null);
+            task.setRetryCount(0);
 
-            OutboxEvent event = outboxRepository.save(createOutbox(saved));
-            return mapToDTO(saved, event);
+            OutboxEvent event = createOutbox(task);
+            outboxPublisher.publishAfterCommit(event);
+            return mapToDTO(task, outboxRepository.save(event));
         });
     }
 
@@ -156,17 +181,7 @@ public class TaskService {
     }
 
     private OutboxEvent createOutbox(Task task) {
-
-        ObjectNode node = objectMapper.createObjectNode();
-        node.put("taskId", task.getId());
-        node.put("payload", task.getPayload());
-
-        OutboxEvent event = new OutboxEvent();
-        event.setTaskId(task.getId());
-        event.setPayload(node.toString());
-        event.setStatus("NEW");
-        event.setCreatedAt(LocalDateTime.now());
-        return event;
+        return outboxEventFactory.create(task);
     }
 
     private OutboxEvent findOutboxForTask(Long taskId) {
@@ -181,6 +196,7 @@ public class TaskService {
         dto.setId(task.getId());
         dto.setPayload(task.getPayload());
         dto.setStatus(task.getStatus());
+        dto.setPriority(task.getPriority());
 
         if (outbox != null) {
             OutboxStatusDTO o = new OutboxStatusDTO();
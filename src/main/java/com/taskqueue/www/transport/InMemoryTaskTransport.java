@@ -0,0 +1,113 @@
+package com.taskqueue.www.transport;
+
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.service.TaskProcessor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node queue in process memory (queue.transport=memory), for small sites and
+ * for running the whole pipeline in tests without Kafka.
+ *
+ * Messages sit in a bounded ring buffer (ArrayBlockingQueue: one preallocated array,
+ * no per-message node). A full buffer rejects the send and the outbox retries it later.
+ * The outbox row is only marked SENT when a worker takes the message, so anything
+ * still buffered when the node dies is re-sent from the outbox after the claim timeout
+ * (as is anything buffered longer than that; the task claim drops the duplicate).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "queue.transport", havingValue = "memory")
+public class InMemoryTaskTransport implements TaskTransport {
+
+    private record Queued(Long outboxId, TaskMessage message) {}
+
+    private final TaskMessageCodec messageCodec;
+    private final TaskProcessor taskProcessor;
+    private final OutboxAckBuffer ackBuffer;
+
+    private final BlockingQueue<Queued> ring;
+    private final int workers;
+    private final ExecutorService threads;
+    private volatile boolean running;
+
+    public InMemoryTaskTransport(TaskMessageCodec messageCodec,
+                                 TaskProcessor taskProcessor,
+                                 OutboxAckBuffer ackBuffer,
+                                 @Value("${queue.memory.capacity:10000}") int capacity,
+                                 @Value("${queue.memory.workers:8}") int workers) {
+        this.messageCodec = messageCodec;
+        this.taskProcessor = taskProcessor;
+        this.ackBuffer = ackBuffer;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.workers = workers;
+        this.threads = Executors.newFixedThreadPool(workers);
+    }
+
+    @Override
+    public void sendTask(OutboxEvent event) {
+        try {
+            if (!ring.offer(new Queued(event.getId(), messageCodec.toMessage(event)))) {
+                log.warn("In-memory queue full, outboxId={} goes back to the outbox", event.getId());
+                ackBuffer.failed(event.getId());
+            }
+        } catch (Exception e) {
+            log.error("Cannot queue outboxId={}: {}", event.getId(), e.getMessage());
+            ackBuffer.failed(event.getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            threads.submit(this::work);
+        }
+        log.info("In-memory task transport started with {} workers, capacity {}",
+                workers, ring.remainingCapacity() + ring.size());
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                Queued queued = ring.take();
+                ackBuffer.acked(queued.outboxId());
+                taskProcessor.process(queued.message());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("In-memory queue worker error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public int depth() {
+        return ring.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        threads.shutdownNow();
+        if (!threads.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("In-memory queue workers did not stop in time");
+        }
+        if (!ring.isEmpty()) {
+            log.warn("{} queued tasks left in memory; the outbox re-sends them after the claim timeout", ring.size());
+        }
+    }
+}
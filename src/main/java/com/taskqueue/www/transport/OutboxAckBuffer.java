@@ -0,0 +1,83 @@
+package com.taskqueue.www.transport;
+
+import com.taskqueue.www.metrics.TaskEvents;
+import com.taskqueue.www.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Collects send outcomes from transport threads and writes them back to the
+ * outbox as set-based updates — no DB work on the I/O or worker threads.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxAckBuffer {
+
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Queue<Long> ackedIds = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> failedIds = new ConcurrentLinkedQueue<>();
+
+    @Value("${outbox.ack-flush-size:500}")
+    private int ackFlushSize;
+
+    public void acked(Long outboxId) {
+        ackedIds.add(outboxId);
+    }
+
+    // Releases the claim so the next poll picks the event up again
+    public void failed(Long outboxId) {
+        failedIds.add(outboxId);
+    }
+
+    /**
+     * Writes buffered ACKs back to the outbox as set-based updates,
+     * at most {@code outbox.ack-flush-size} ids per statement.
+     */
+    @Scheduled(fixedDelayString = "${outbox.ack-flush-ms:10}")
+    public void flushAcks() {
+        flush("ACK", ackedIds, outboxRepository::markSent);
+        flush("RELEASE", failedIds, outboxRepository::releaseClaims);
+    }
+
+    private void flush(String kind, Queue<Long> buffer, Function<List<Long>, Integer> update) {
+        while (!buffer.isEmpty()) {
+            List<Long> ids = new ArrayList<>(ackFlushSize);
+            Long id;
+            while (ids.size() < ackFlushSize && (id = buffer.poll()) != null) {
+                ids.add(id);
+            }
+
+            TaskEvents.OutboxFlush event = new TaskEvents.OutboxFlush();
+            event.begin();
+            try {
+                transactionTemplate.executeWithoutResult(status -> update.apply(ids));
+            } catch (Exception e) {
+                // Keep them for the next flush; dropping an ACK would re-publish the event
+                // once its claim times out
+                buffer.addAll(ids);
+                log.error("Failed to flush {} outbox {}s, retrying on the next flush: {}",
+                        ids.size(), kind, e.getMessage());
+                return;
+            } finally {
+                if (event.shouldCommit()) {
+                    event.kind = kind;
+                    event.events = ids.size();
+                    event.commit();
+                }
+            }
+        }
+    }
+}
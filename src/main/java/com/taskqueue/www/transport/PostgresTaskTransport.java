@@ -0,0 +1,243 @@
+package com.taskqueue.www.transport;
+
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.QueueMessage;
+import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.repository.QueueMessageRepository;
+import com.taskqueue.www.service.TaskProcessor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka-free queue on the task database (queue.transport=postgres).
+ *
+ * - Publishing inserts into queue_message and marks the outbox rows SENT in the same
+ *   transaction, then NOTIFYs; the hand-off is exactly once.
+ * - Each worker takes one visible message at a time with FOR UPDATE SKIP LOCKED and
+ *   hides it for queue.postgres.visibility-timeout-ms, so the timeout only has to cover
+ *   one task. A message is deleted once its task has run; if the worker dies first,
+ *   the message becomes visible again.
+ * - A message received more than queue.postgres.max-receives times keeps killing or
+ *   outliving its worker; its task goes to the DLQ instead of being run again.
+ * - One connection LISTENs for inserts and wakes idle workers, so pickup does not wait
+ *   for the next poll. Polling every queue.postgres.poll-ms stays as a fallback.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "queue.transport", havingValue = "postgres")
+public class PostgresTaskTransport implements TaskTransport {
+
+    static final String CHANNEL = "task_queue";
+
+    private final QueueMessageRepository queueRepository;
+    private final OutboxRepository outboxRepository;
+    private final TaskMessageCodec messageCodec;
+    private final TaskProcessor taskProcessor;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    private final int workers;
+    private final int maxReceives;
+    private final long pollMs;
+    private final long visibilityTimeoutMs;
+
+    private final Object wakeup = new Object();
+    private final ExecutorService threads;
+    private volatile boolean running;
+
+    public PostgresTaskTransport(QueueMessageRepository queueRepository,
+                                 OutboxRepository outboxRepository,
+                                 TaskMessageCodec messageCodec,
+                                 TaskProcessor taskProcessor,
+                                 PlatformTransactionManager transactionManager,
+                                 JdbcTemplate jdbcTemplate,
+                                 DataSource dataSource,
+                                 @Value("${queue.postgres.workers:4}") int workers,
+                                 @Value("${queue.postgres.max-receives:5}") int maxReceives,
+                                 @Value("${queue.postgres.poll-ms:1000}") long pollMs,
+                                 @Value("${queue.postgres.visibility-timeout-ms:300000}") long visibilityTimeoutMs) {
+        this.queueRepository = queueRepository;
+        this.outboxRepository = outboxRepository;
+        this.messageCodec = messageCodec;
+        this.taskProcessor = taskProcessor;
+        // sendTask runs from afterCommit of the creating transaction; it must not join it
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.workers = workers;
+        this.maxReceives = maxReceives;
+        this.pollMs = pollMs;
+        this.visibilityTimeoutMs = visibilityTimeoutMs;
+        this.threads = Executors.newFixedThreadPool(workers + 1);
+    }
+
+    /* ================= PUBLISH ================= */
+
+    @Override
+    public void sendTask(OutboxEvent event) {
+        sendTasks(List.of(event));
+    }
+
+    @Override
+    public void sendTasks(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<QueueMessage> messages = new ArrayList<>(events.size());
+        List<Long> outboxIds = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                messages.add(toQueueMessage(event));
+                outboxIds.add(event.getId());
+            } catch (Exception e) {
+                // Leave it IN_FLIGHT; the claim timeout retries it and the error stays visible
+                log.error("Cannot queue outboxId={}: {}", event.getId(), e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                queueRepository.saveAll(messages);
+                outboxRepository.markSent(outboxIds);
+                jdbcTemplate.execute("NOTIFY " + CHANNEL); // delivered on commit
+            });
+        } catch (Exception e) {
+            log.error("Failed to queue {} outbox events: {}", outboxIds.size(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.releaseClaims(outboxIds));
+        }
+    }
+
+    private QueueMessage toQueueMessage(OutboxEvent event) throws Exception {
+        TaskMessage message = messageCodec.toMessage(event);
+        QueueMessage row = new QueueMessage();
+        row.setTaskId(message.taskId());
+        row.setTaskType(message.type());
+        row.setUserId(event.getUserId());
+        row.setPayload(message.payload());
+        row.setVisibleAt(LocalDateTime.now());
+        return row;
+    }
+
+    /* ================= CONSUME ================= */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        threads.submit(this::listen);
+        for (int i = 0; i < workers; i++) {
+            threads.submit(this::work);
+        }
+        log.info("Postgres task transport started with {} workers", workers);
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                List<QueueMessage> received = queueRepository.receive(
+                        now, now.plus(Duration.ofMillis(visibilityTimeoutMs)), 1);
+
+                if (received.isEmpty()) {
+                    synchronized (wakeup) {
+                        wakeup.wait(pollMs);
+                    }
+                    continue;
+                }
+
+                QueueMessage row = received.get(0);
+                TaskMessage message = new TaskMessage(row.getTaskId(), row.getTaskType(), row.getPayload());
+                if (row.getReceiveCount() > maxReceives) {
+                    log.error("Queue message {} for task {} was received {} times without finishing. Moving to DLQ.",
+                            row.getId(), row.getTaskId(), row.getReceiveCount());
+                    taskProcessor.deadLetter(message,
+                            "Queue message received " + row.getReceiveCount() + " times without finishing");
+                } else {
+                    taskProcessor.process(message);
+                }
+
+                transactionTemplate.executeWithoutResult(status -> queueRepository.deleteByIds(List.of(row.getId())));
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // The received message reappears after the visibility timeout
+                log.error("Postgres queue worker error: {}", e.getMessage(), e);
+                sleepQuietly(pollMs);
+            }
+        }
+    }
+
+    // Dedicated connection, outside the pool's transactions, for LISTEN
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications((int) pollMs);
+                    if (notifications != null && notifications.length > 0) {
+                        synchronized (wakeup) {
+                            wakeup.notifyAll();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("LISTEN connection lost, workers fall back to polling: {}", e.getMessage());
+                    sleepQuietly(pollMs);
+                }
+            }
+        }
+    }
+
+    private void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        threads.shutdownNow();
+        if (!threads.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Postgres queue workers did not stop in time; their messages reappear after the visibility timeout");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.taskqueue.www.transport;
+
+import com.taskqueue.www.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Queue behind the outbox, picked by queue.transport:
+ * - kafka    (default) KafkaProducerService / KafkaConsumerService
+ * - postgres PostgresTaskTransport: queue_message table, SKIP LOCKED, LISTEN/NOTIFY
+ * - memory   InMemoryTaskTransport: bounded ring buffer, single node only
+ *
+ * Each implementation consumes its own queue and hands messages to TaskProcessor.
+ * The event arrives claimed (IN_FLIGHT); the transport must mark it SENT once the
+ * queue owns it, or release the claim so the outbox poller sends it again.
+ */
+public interface TaskTransport {
+
+    void sendTask(OutboxEvent event);
+
+    default void sendTasks(List<OutboxEvent> events) {
+        events.forEach(this::sendTask);
+    }
+}
@@ -0,0 +1,32 @@
+-- Follow-up to retention.sql: columns outbox_event gained after it was partitioned.
+-- Safe to run more than once, and on a table that never went through retention.sql.
+-- Run it before starting a release that writes these columns.
+
+BEGIN;
+
+-- Kafka headers and routing (type header, record key, target topic, owner)
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS task_type VARCHAR(255);
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS message_key VARCHAR(255);
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS topic VARCHAR(255);
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS user_id BIGINT;
+
+-- Unsent rows carried over by retention.sql lost whichever of these columns the legacy
+-- table already had; copy them back so the publisher does not treat the rows as v1
+DO $$
+DECLARE
+    assignments TEXT;
+BEGIN
+    SELECT string_agg(format('%1$I = l.%1$I', column_name), ', ')
+    INTO assignments
+    FROM information_schema.columns
+    WHERE table_name = 'outbox_event_legacy'
+      AND column_name IN ('task_type', 'message_key', 'topic', 'user_id');
+
+    IF assignments IS NOT NULL THEN
+        EXECUTE 'UPDATE outbox_event o SET ' || assignments
+             || ' FROM outbox_event_legacy l'
+             || ' WHERE o.id = l.id AND o.task_type IS NULL AND o.status <> ''SENT''';
+    END IF;
+END $$;
+
+COMMIT;
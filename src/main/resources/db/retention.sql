@@ -0,0 +1,50 @@
+-- One-off migration: range-partition outbox_event by created_at (daily).
+-- RetentionService creates upcoming partitions and detaches/drops old ones.
+-- Run during a quiet window; the publisher must be stopped while it runs.
+
+BEGIN;
+
+ALTER TABLE outbox_event RENAME TO outbox_event_legacy;
+
+CREATE TABLE outbox_event (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    task_id BIGINT,
+    payload TEXT NOT NULL,
+    status VARCHAR(255) NOT NULL,  -- NEW, IN_FLIGHT, SENT
+    created_at TIMESTAMP NOT NULL,
+    claimed_at TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside the pre-created daily range (e.g. clock skew)
+CREATE TABLE outbox_event_default PARTITION OF outbox_event DEFAULT;
+
+-- Today's partition; later days are created by RetentionService
+DO $$
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE outbox_event_p%s PARTITION OF outbox_event FOR VALUES FROM (%L) TO (%L)',
+        to_char(current_date, 'YYYYMMDD'), current_date, current_date + 1);
+END $$;
+
+-- Only unsent rows are carried over; SENT history stays in outbox_event_legacy
+INSERT INTO outbox_event (id, task_id, payload, status, created_at, claimed_at)
+SELECT id, task_id, payload, status, created_at, claimed_at
+FROM outbox_event_legacy
+WHERE status <> 'SENT';
+
+SELECT setval(pg_get_serial_sequence('outbox_event', 'id'),
+              (SELECT COALESCE(MAX(id), 0) + 1 FROM outbox_event_legacy), false);
+
+-- Polling only ever looks at NEW rows; a partial index stays tiny
+CREATE INDEX IF NOT EXISTS idx_outbox_new
+    ON outbox_event(id) WHERE status = 'NEW';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_task
+    ON outbox_event(task_id, created_at);
+
+COMMIT;
+
+-- Task archiving: supports the terminal-task scan in TaskRepository.archiveTerminalTasks
+CREATE INDEX IF NOT EXISTS idx_task_terminal_updated
+    ON task(updated_at) WHERE status IN ('DONE', 'CANCELLED');
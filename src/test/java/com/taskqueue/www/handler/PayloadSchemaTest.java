@@ -0,0 +1,115 @@
+package com.taskqueue.www.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadSchemaTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final PayloadSchema email = new EmailTaskHandler(null).payloadSchema();
+    private final PayloadSchema webhook = new WebhookTaskHandler(null).payloadSchema();
+    private final PayloadSchema pdf = new PdfTaskHandler(null).payloadSchema();
+
+    @Test
+    void validPayloadsHaveNoViolations() throws Exception {
+        assertThat(email.validate(json("""
+                {"type":"EMAIL","to":["a@example.com"],"subject":"Hi","body":"Hello","html":true}
+                """))).isEmpty();
+        assertThat(webhook.validate(json("""
+                {"type":"WEBHOOK","url":"https://example.com/hook","method":"POST"}
+                """))).isEmpty();
+        assertThat(pdf.validate(json("""
+                {"type":"PDF","template":"invoice_2024","data":{"total":10}}
+                """))).isEmpty();
+    }
+
+    @Test
+    void reportsEveryViolationAtOnce() throws Exception {
+        assertThat(email.validate(json("""
+                {"type":"EMAIL","to":[],"subject":null}
+                """))).containsExactly(
+                "'to' must have at least 1 item(s)",
+                "'subject' is required",
+                "'body' is required");
+    }
+
+    @Test
+    void nullCountsAsMissing() throws Exception {
+        assertThat(pdf.validate(json("""
+                {"type":"PDF","template":null,"data":{}}
+                """))).containsExactly("'template' is required");
+    }
+
+    @Test
+    void checksEveryArrayItem() throws Exception {
+        assertThat(email.validate(json("""
+                {"to":["a@example.com","not-an-address",5],"subject":"Hi","body":"Hello"}
+                """))).containsExactly("'to[1]' is not valid", "'to[2]' is not valid");
+    }
+
+    @Test
+    void patternsAndAllowedValues() throws Exception {
+        assertThat(webhook.validate(json("""
+                {"url":"ftp://example.com","method":"FETCH"}
+                """))).containsExactly(
+                "'url' is not valid",
+                "'method' must be one of GET, POST, PUT, PATCH, DELETE, HEAD, OPTIONS, TRACE");
+        assertThat(pdf.validate(json("""
+                {"template":"../../etc/passwd","data":{}}
+                """))).containsExactly("'template' is not valid");
+        assertThat(pdf.validate(json("""
+                {"template":"  ","data":{}}
+                """))).contains("'template' must not be blank");
+    }
+
+    @Test
+    void flagAcceptsBooleansAndTheirStrings() throws Exception {
+        for (String html : new String[] {"true", "false", "\"true\"", "\"false\"", "1", "0", "null"}) {
+            assertThat(email.validate(json(
+                    "{\"to\":[\"a@example.com\"],\"subject\":\"Hi\",\"body\":\"x\",\"html\":" + html + "}")))
+                    .as("html=%s", html)
+                    .isEmpty();
+        }
+        assertThat(email.validate(json("""
+                {"to":["a@example.com"],"subject":"Hi","body":"x","html":"yes"}
+                """))).containsExactly("'html' must be true or false");
+        assertThat(email.validate(json("""
+                {"to":["a@example.com"],"subject":"Hi","body":"x","html":[]}
+                """))).containsExactly("'html' must be true or false");
+    }
+
+    // Shapes the handlers accepted before validation existed; they read these fields with asText()
+    @Test
+    void legacyPayloadsStillPass() throws Exception {
+        assertThat(email.validate(json("""
+                {"type":"EMAIL","to":["a@example.com"],"subject":2024,"body":{"text":"x"},"html":1}
+                """))).isEmpty();
+        assertThat(webhook.validate(json("""
+                {"type":"WEBHOOK","url":"https://example.com/hook","method":"post"}
+                """))).isEmpty();
+    }
+
+    @Test
+    void optionalFieldsMayBeAbsentButNotMistyped() throws Exception {
+        PayloadSchema schema = PayloadSchema.builder().optional("from", JsonNodeType.STRING).build();
+
+        assertThat(schema.validate(json("{}"))).isEmpty();
+        assertThat(schema.validate(json("{\"from\":[]}"))).containsExactly("'from' must be a string");
+    }
+
+    @Test
+    void payloadMustBeAnObject() throws Exception {
+        assertThat(PayloadSchema.ANY.validate(json("[1,2]"))).containsExactly("payload must be a JSON object");
+        assertThat(PayloadSchema.ANY.validate(null)).containsExactly("payload must be a JSON object");
+        assertThat(PayloadSchema.ANY.validate(json("{\"anything\":1}"))).isEmpty();
+    }
+
+    private static JsonNode json(String text) throws Exception {
+        return MAPPER.readTree(text);
+    }
+}
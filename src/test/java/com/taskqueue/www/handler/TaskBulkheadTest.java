@@ -0,0 +1,139 @@
+package com.taskqueue.www.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskBulkheadTest {
+
+    private final List<TaskBulkhead> bulkheads = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        bulkheads.forEach(TaskBulkhead::shutdown);
+    }
+
+    @Test
+    void runsOnTheCallingThread() throws Exception {
+        TaskBulkhead bulkhead = bulkhead(2, 10, 1000);
+        Thread caller = Thread.currentThread();
+        AtomicBoolean sameThread = new AtomicBoolean();
+
+        bulkhead.execute(() -> sameThread.set(Thread.currentThread() == caller));
+
+        assertThat(sameThread).isTrue();
+    }
+
+    @Test
+    void neverRunsMoreThanMaxConcurrency() throws Exception {
+        TaskBulkhead bulkhead = bulkhead(3, 100, 5000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    bulkhead.execute(() -> {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                    });
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertThat(peak.get()).isEqualTo(3);
+        assertThat(bulkhead.running()).isZero();
+    }
+
+    @Test
+    void interruptsWorkPastItsTimeout() {
+        TaskBulkhead bulkhead = bulkhead(1, 0, 50);
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> Thread.sleep(5000)))
+                .isInstanceOf(TimeoutException.class)
+                .hasMessageContaining("50ms");
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void holdsTheSlotUntilWorkIgnoringTheInterruptReturns() throws Exception {
+        TaskBulkhead bulkhead = bulkhead(1, 0, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean timedOut = new AtomicBoolean();
+
+        Thread stubborn = Thread.ofVirtual().start(() -> {
+            try {
+                bulkhead.execute(() -> {
+                    while (true) {
+                        try {
+                            if (release.await(10, TimeUnit.SECONDS)) {
+                                return;
+                            }
+                        } catch (InterruptedException ignored) {
+                            // keeps running past its deadline
+                        }
+                    }
+                });
+            } catch (TimeoutException e) {
+                timedOut.set(true);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        assertThat(bulkhead.running()).isEqualTo(1);
+        assertThat(bulkhead.isSaturated()).isTrue();
+
+        release.countDown();
+        stubborn.join();
+        assertThat(timedOut).isTrue();
+        assertThat(bulkhead.running()).isZero();
+        assertThat(bulkhead.isSaturated()).isFalse();
+    }
+
+    @Test
+    void workFinishingInTimeLeavesNoInterruptBehind() throws Exception {
+        TaskBulkhead bulkhead = bulkhead(1, 0, 30);
+
+        bulkhead.execute(() -> { });
+        Thread.sleep(60);
+
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void rethrowsTheWorksOwnException() {
+        TaskBulkhead bulkhead = bulkhead(1, 0, 1000);
+        IOException failure = new IOException("smtp down");
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> {
+            throw failure;
+        })).isSameAs(failure);
+        assertThat(bulkhead.running()).isZero();
+    }
+
+    private TaskBulkhead bulkhead(int maxConcurrency, int queueCapacity, long timeoutMs) {
+        TaskBulkhead bulkhead = new TaskBulkhead("TEST", maxConcurrency, queueCapacity, timeoutMs, 0);
+        bulkheads.add(bulkhead);
+        return bulkhead;
+    }
+}
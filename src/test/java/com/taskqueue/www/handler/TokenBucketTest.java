@@ -0,0 +1,28 @@
+package com.taskqueue.www.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void burstOfOneSecondIsFreeThenTokensArriveAtTheRate() throws Exception {
+        TokenBucket bucket = new TokenBucket(10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire();
+        }
+        long burst = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        bucket.acquire();
+        long next = System.nanoTime() - start;
+
+        assertThat(burst).isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(next).isBetween(TimeUnit.MILLISECONDS.toNanos(70), TimeUnit.MILLISECONDS.toNanos(300));
+    }
+}
@@ -0,0 +1,113 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.enums.TaskPriority;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairTaskSchedulerTest {
+
+    // Collects hand-offs instead of running them, so the test decides when work finishes
+    private final Deque<Runnable> started = new ArrayDeque<>();
+    private final Executor target = started::add;
+    private final List<String> order = new ArrayList<>();
+
+    @Test
+    void highLaneStartsFourTimesAsOftenAsLowLane() {
+        FairTaskScheduler scheduler = scheduler(1, 32, new MockEnvironment());
+        for (int i = 0; i < 20; i++) {
+            submit(scheduler, 1L, TaskPriority.LOW, "L");
+            submit(scheduler, 1L, TaskPriority.HIGH, "H");
+        }
+
+        drain();
+
+        // The first LOW task started before anything else was queued
+        assertThat(order.subList(1, 11)).containsExactly("H", "H", "H", "H", "L", "H", "H", "H", "H", "L");
+    }
+
+    @Test
+    void perUserCapSpansAllLanesOfThatUser() {
+        FairTaskScheduler scheduler = scheduler(100, 2, new MockEnvironment());
+        for (int i = 0; i < 3; i++) {
+            submit(scheduler, 1L, TaskPriority.HIGH, "H");
+            submit(scheduler, 1L, TaskPriority.LOW, "L");
+        }
+
+        assertThat(started).hasSize(2);
+        assertThat(scheduler.inFlight()).isEqualTo(2);
+        assertThat(scheduler.queued()).isEqualTo(4);
+
+        drain();
+        assertThat(order).hasSize(6);
+        assertThat(scheduler.queued()).isZero();
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    @Test
+    void usersAreServedInProportionToTheirWeights() {
+        FairTaskScheduler scheduler = scheduler(1, 32,
+                new MockEnvironment().withProperty("kafka.fair.weights.1", "3"));
+        for (int i = 0; i < 20; i++) {
+            submit(scheduler, 1L, TaskPriority.NORMAL, "A");
+            submit(scheduler, 2L, TaskPriority.NORMAL, "B");
+        }
+
+        drain();
+
+        // Per round (NORMAL lane weight 2) user 1 starts 6 tasks, user 2 starts 2
+        List<String> rounds = order.subList(1, 17);
+        assertThat(Collections.frequency(rounds, "A")).isEqualTo(12);
+        assertThat(Collections.frequency(rounds, "B")).isEqualTo(4);
+        assertThat(rounds.subList(0, 8)).containsExactly("B", "B", "A", "A", "A", "A", "A", "A");
+    }
+
+    @Test
+    void lightUserIsNotStarvedBehindAHeavyBacklog() {
+        FairTaskScheduler scheduler = scheduler(1, 32, new MockEnvironment());
+        for (int i = 0; i < 1000; i++) {
+            submit(scheduler, 1L, TaskPriority.NORMAL, "heavy");
+        }
+        submit(scheduler, 2L, TaskPriority.NORMAL, "light");
+
+        drain();
+
+        // Starts right after the heavy user's first round (NORMAL lane weight 2)
+        assertThat(order.indexOf("light")).isEqualTo(3);
+        assertThat(order).hasSize(1001);
+    }
+
+    @Test
+    void disabledSchedulerPassesWorkStraightThrough() {
+        FairTaskScheduler scheduler = new FairTaskScheduler(false, 1, 1, 4, 2, 1, new MockEnvironment());
+        for (int i = 0; i < 5; i++) {
+            submit(scheduler, 1L, TaskPriority.NORMAL, "A");
+        }
+
+        assertThat(started).hasSize(5);
+        assertThat(scheduler.queued()).isZero();
+    }
+
+    private FairTaskScheduler scheduler(int maxInFlight, int perUserMaxInFlight, MockEnvironment environment) {
+        return new FairTaskScheduler(true, maxInFlight, perUserMaxInFlight, 4, 2, 1, environment);
+    }
+
+    private void submit(FairTaskScheduler scheduler, long user, TaskPriority lane, String label) {
+        scheduler.executorFor(user, lane, target).execute(() -> order.add(label));
+    }
+
+    // Finishes started work one at a time, oldest first; each finish lets the next one start
+    private void drain() {
+        while (!started.isEmpty()) {
+            started.poll().run();
+        }
+    }
+}
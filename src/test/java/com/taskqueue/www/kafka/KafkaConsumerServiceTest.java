@@ -0,0 +1,90 @@
+package com.taskqueue.www.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.handler.TaskBulkhead;
+import com.taskqueue.www.handler.TaskHandlerRegistry;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.service.TaskProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class KafkaConsumerServiceTest {
+
+    private static final String PAYLOAD = "{\"type\":\"PDF\",\"template\":\"invoice\"}";
+    private static final TopicPartition PARTITION = new TopicPartition(TopicRouter.DEFAULT_TOPIC, 0);
+
+    private final TaskMessageCodec codec = new TaskMessageCodec(new ObjectMapper());
+    private final TaskProcessor taskProcessor = mock(TaskProcessor.class);
+    private final TaskHandlerRegistry handlerRegistry = mock(TaskHandlerRegistry.class);
+    private final TaskExecutionPipeline pipeline = mock(TaskExecutionPipeline.class);
+    private final PartitionThrottle throttle = mock(PartitionThrottle.class);
+    private final TaskBulkhead pdfBulkhead = new TaskBulkhead("PDF", 1, 0, 1000, 0);
+
+    private final KafkaConsumerService consumer =
+            new KafkaConsumerService(taskProcessor, handlerRegistry, codec, pipeline, throttle);
+
+    KafkaConsumerServiceTest() {
+        when(handlerRegistry.getBulkhead("PDF")).thenReturn(pdfBulkhead);
+    }
+
+    @AfterEach
+    void shutdown() {
+        pdfBulkhead.shutdown();
+    }
+
+    @Test
+    void asyncChecksTheBulkheadOfTheHeaderType() {
+        consumer.consumeAsync(v2Record(), mock(Acknowledgment.class));
+
+        verify(throttle).pauseIfSaturated("task-async-listener", PARTITION, pdfBulkhead);
+        verify(pipeline).submit(eq("task-async-listener"), eq(PARTITION), eq("7"), eq("PDF"), eq(7L), any(), any());
+    }
+
+    @Test
+    void asyncReadsTheTypeOfALegacyRecordFromItsPayload() {
+        String envelope = new ObjectMapper().createObjectNode()
+                .put("taskId", 42L)
+                .put("payload", PAYLOAD)
+                .toString();
+
+        consumer.consumeAsync(new ConsumerRecord<>(TopicRouter.DEFAULT_TOPIC, 0, 0L, "7", envelope),
+                mock(Acknowledgment.class));
+
+        verify(throttle).pauseIfSaturated("task-async-listener", PARTITION, pdfBulkhead);
+        verify(pipeline).submit(eq("task-async-listener"), eq(PARTITION), eq("7"), eq("PDF"), eq(null), any(), any());
+    }
+
+    @Test
+    void recordModeNeverPauses() {
+        consumer.consume(v2Record());
+
+        verify(taskProcessor).process(any());
+        verifyNoInteractions(throttle);
+    }
+
+    private ConsumerRecord<String, String> v2Record() {
+        Task task = new Task();
+        task.setId(42L);
+        task.setUserId(7L);
+        task.setPayload(PAYLOAD);
+        ProducerRecord<String, String> sent = codec.encode(TopicRouter.DEFAULT_TOPIC, "7", codec.toOutboxEvent(task));
+
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(sent.topic(), 0, 0L, sent.key(), sent.value());
+        for (Header header : sent.headers()) {
+            record.headers().add(header.key(), header.value());
+        }
+        return record;
+    }
+}
@@ -0,0 +1,148 @@
+package com.taskqueue.www.kafka;
+
+import com.taskqueue.www.enums.RoutingMode;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TaskExecutionPipelineTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(TopicRouter.DEFAULT_TOPIC, 0);
+
+    private final PartitionThrottle throttle = mock(PartitionThrottle.class);
+    private final TaskExecutionPipeline pipeline = pipeline(true);
+    private final TaskExecutionPipeline unordered = pipeline(false);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pipeline.shutdown();
+        unordered.shutdown();
+    }
+
+    @Test
+    void lightUserRunsWhileAHeavyUsersBacklogIsStuckOnTheSamePartition() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch lightDone = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(1001);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            pipeline.submit("task-async-listener", PARTITION, "1", "PDF", 1L, () -> await(gate), allDone::countDown);
+        }
+        pipeline.submit("task-async-listener", PARTITION, "2", "PDF", 2L, lightDone::countDown, allDone::countDown);
+        long submitMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The poll thread never waited, even far past the per-partition limit
+        assertThat(submitMs).isLessThan(2000);
+        assertThat(lightDone.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(throttle, atLeastOnce()).pause(eq("task-async-listener"), eq(PARTITION), eq("in-flight limit"), any());
+
+        gate.countDown();
+        assertThat(allDone.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.inFlight(PARTITION)).isZero();
+    }
+
+    @Test
+    void failingWorkIsStillAcknowledged() throws Exception {
+        CountDownLatch acked = new CountDownLatch(1);
+
+        pipeline.submit("task-async-listener", PARTITION, "1", "PDF", 1L, () -> {
+            throw new IllegalStateException("boom");
+        }, acked::countDown);
+
+        assertThat(acked.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void sameKeyRecordsRunOneAtATimeInOrder() throws Exception {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            int offset = i;
+            pipeline.submit("task-async-listener", PARTITION, "7", "PDF", 7L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                order.add(offset);
+                running.decrementAndGet();
+            }, done::countDown);
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(order).isSorted().hasSize(20);
+    }
+
+    @Test
+    void aBlockedKeyDoesNotHoldUpOtherKeys() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+
+        pipeline.submit("task-async-listener", PARTITION, "7", "PDF", 7L, () -> await(gate), allDone::countDown);
+        pipeline.submit("task-async-listener", PARTITION, "7", "PDF", 7L, () -> { }, allDone::countDown);
+        pipeline.submit("task-async-listener", PARTITION, "8", "PDF", 7L, otherDone::countDown, allDone::countDown);
+
+        assertThat(otherDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(allDone.getCount()).isEqualTo(2);
+
+        gate.countDown();
+        assertThat(allDone.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void withoutKeyOrderSameKeyRecordsRunConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+
+        for (int i = 0; i < 2; i++) {
+            unordered.submit("task-async-listener", PARTITION, "7", "PDF", 7L, () -> {
+                bothStarted.countDown();
+                await(bothStarted);
+            }, done::countDown);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private TaskExecutionPipeline pipeline(boolean keyOrder) {
+        return new TaskExecutionPipeline(
+                new FairTaskScheduler(true, 3, 2, 4, 2, 1, new MockEnvironment()),
+                throttle,
+                new TopicRouter(RoutingMode.SINGLE, List.of("PDF"), List.of()),
+                64, 1, Set.of(), keyOrder);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch gate) {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.taskqueue.www.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.model.Task;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskMessageCodecTest {
+
+    private static final String PAYLOAD = "{\"type\":\"PDF\",\"template\":\"invoice\"}";
+
+    private final TaskMessageCodec codec = new TaskMessageCodec(new ObjectMapper());
+
+    @Test
+    void v2RoundTripCarriesIdTypeAndUserInHeaders() throws Exception {
+        OutboxEvent event = codec.toOutboxEvent(task(42L, 7L));
+
+        ProducerRecord<String, String> sent = codec.encode("task-topic", "7", event);
+        ConsumerRecord<String, String> received = delivered(sent);
+
+        assertThat(sent.value()).isEqualTo(PAYLOAD);
+        assertThat(codec.decode(received)).isEqualTo(new TaskMessage(42L, "PDF", PAYLOAD));
+        assertThat(codec.userId(received)).isEqualTo(7L);
+    }
+
+    @Test
+    void v2RecordWithoutOwnerHasNoUserHeader() throws Exception {
+        ConsumerRecord<String, String> received = delivered(
+                codec.encode("task-topic", null, codec.toOutboxEvent(task(42L, null))));
+
+        assertThat(codec.decode(received).taskId()).isEqualTo(42L);
+        assertThat(codec.userId(received)).isNull();
+    }
+
+    @Test
+    void v1EnvelopeDecodesWithoutType() throws Exception {
+        String envelope = new ObjectMapper().createObjectNode()
+                .put("taskId", 42L)
+                .put("payload", PAYLOAD)
+                .toString();
+
+        assertThat(codec.decode(new ConsumerRecord<>("task-topic", 0, 0L, null, envelope)))
+                .isEqualTo(new TaskMessage(42L, null, PAYLOAD));
+    }
+
+    @Test
+    void legacyOutboxRowResolvesTypeFromPayload() throws Exception {
+        OutboxEvent legacy = new OutboxEvent();
+        legacy.setTaskId(42L);
+        legacy.setPayload(new ObjectMapper().createObjectNode()
+                .put("taskId", 42L)
+                .put("payload", PAYLOAD)
+                .toString());
+
+        assertThat(codec.toMessage(legacy)).isEqualTo(new TaskMessage(42L, "PDF", PAYLOAD));
+    }
+
+    @Test
+    void v2RecordWithoutTaskIdIsADecodeError() {
+        ConsumerRecord<String, String> record = delivered(
+                codec.encode("task-topic", null, codec.toOutboxEvent(task(42L, 7L))));
+        record.headers().remove(TaskMessageCodec.HEADER_TASK_ID);
+
+        assertThatThrownBy(() -> codec.decode(record))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(TaskMessageCodec.HEADER_TASK_ID);
+    }
+
+    @Test
+    void v2RecordWithoutTypeIsADecodeError() {
+        ConsumerRecord<String, String> record = delivered(
+                codec.encode("task-topic", null, codec.toOutboxEvent(task(42L, 7L))));
+        record.headers().remove(TaskMessageCodec.HEADER_TYPE);
+
+        assertThatThrownBy(() -> codec.decode(record))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(TaskMessageCodec.HEADER_TYPE);
+    }
+
+    @Test
+    void v1RecordWithoutTaskIdIsADecodeError() {
+        assertThatThrownBy(() -> codec.decode(new ConsumerRecord<>("task-topic", 0, 0L, null, PAYLOAD)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readTypeFallsBackToDefault() {
+        assertThat(codec.readType(PAYLOAD)).isEqualTo("PDF");
+        assertThat(codec.readType("{}")).isEqualTo("DEFAULT");
+        assertThat(codec.readType("not json")).isEqualTo("DEFAULT");
+    }
+
+    private static Task task(Long id, Long userId) {
+        Task task = new Task();
+        task.setId(id);
+        task.setUserId(userId);
+        task.setPayload(PAYLOAD);
+        return task;
+    }
+
+    private static ConsumerRecord<String, String> delivered(ProducerRecord<String, String> sent) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(sent.topic(), 0, 0L, sent.key(), sent.value());
+        for (Header header : sent.headers()) {
+            record.headers().add(header.key(), header.value());
+        }
+        return record;
+    }
+}
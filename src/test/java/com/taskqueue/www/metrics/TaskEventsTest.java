@@ -0,0 +1,46 @@
+package com.taskqueue.www.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void payloadSizeIsInUtf8Bytes() {
+        assertThat(TaskEvents.sizeOf("{\"name\":\"Zoë\"}")).isEqualTo(15);
+        assertThat(TaskEvents.sizeOf("€")).isEqualTo(3);
+        assertThat(TaskEvents.sizeOf(null)).isZero();
+    }
+
+    @Test
+    void recordedHandlerEventCarriesItsFields() throws Exception {
+        Path file = dir.resolve("handler.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TaskEvents.Handler.class);
+            recording.start();
+            TaskEvents.handler(42L, "PDF", 2, "{\"name\":\"Zoë\"}", () -> { }).run();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getLong("taskId")).isEqualTo(42L);
+        assertThat(event.getString("type")).isEqualTo("PDF");
+        assertThat(event.getInt("attempt")).isEqualTo(2);
+        assertThat(event.getLong("payloadSize")).isEqualTo(15);
+        assertThat(event.getBoolean("success")).isTrue();
+    }
+}
@@ -0,0 +1,46 @@
+package com.taskqueue.www.metrics;
+
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.kafka.FairTaskScheduler;
+import com.taskqueue.www.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TaskMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TaskMetrics metrics = new TaskMetrics(registry, mock(OutboxRepository.class),
+            new FairTaskScheduler(true, 3, 2, 4, 2, 1, new MockEnvironment()));
+
+    @Test
+    void countsFailuresPerTypeAndKind() {
+        metrics.failed("PDF", FailureKind.TRANSIENT);
+        metrics.failed("PDF", FailureKind.TRANSIENT);
+        metrics.failed("PDF", FailureKind.PERMANENT);
+        metrics.failed("EMAIL", FailureKind.TRANSIENT);
+
+        assertThat(failures("PDF", FailureKind.TRANSIENT)).isEqualTo(2);
+        assertThat(failures("PDF", FailureKind.PERMANENT)).isEqualTo(1);
+        assertThat(failures("EMAIL", FailureKind.TRANSIENT)).isEqualTo(1);
+        assertThat(registry.find("taskqueue.task.failures").counters()).hasSize(3);
+    }
+
+    @Test
+    void timesProducerAcksPerTopicAndOutcome() {
+        long start = System.nanoTime();
+        metrics.producerAck("task-topic", start, true);
+        metrics.producerAck("task-topic", start, true);
+        metrics.producerAck("task-topic", start, false);
+
+        assertThat(registry.get("taskqueue.producer.ack").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get("taskqueue.producer.ack").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    private double failures(String type, FailureKind kind) {
+        return registry.get("taskqueue.task.failures").tag("type", type).tag("kind", kind.name()).counter().count();
+    }
+}
@@ -0,0 +1,80 @@
+package com.taskqueue.www.retry;
+
+import com.taskqueue.www.enums.RetryJitter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExponentialBackoffPolicyTest {
+
+    private static final long BASE = 1000;
+    private static final long CAP = 20000;
+
+    @Test
+    void noJitterGrowsByTheMultiplierUpToTheCap() {
+        ExponentialBackoffPolicy policy = policy(RetryJitter.NONE);
+
+        assertThat(policy.backoffMs(1, 0)).isEqualTo(1000);
+        assertThat(policy.backoffMs(2, 1000)).isEqualTo(3000);
+        assertThat(policy.backoffMs(3, 3000)).isEqualTo(9000);
+        assertThat(policy.backoffMs(4, 9000)).isEqualTo(CAP);
+        assertThat(policy.backoffMs(30, CAP)).isEqualTo(CAP);
+    }
+
+    @Test
+    void fullJitterStaysBetweenZeroAndTheCappedExponential() {
+        ExponentialBackoffPolicy policy = policy(RetryJitter.FULL);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.backoffMs(1, 0)).isBetween(0L, 1000L);
+            assertThat(policy.backoffMs(3, 0)).isBetween(0L, 9000L);
+            assertThat(policy.backoffMs(10, 0)).isBetween(0L, CAP);
+        }
+    }
+
+    @Test
+    void decorrelatedJitterStaysBetweenBaseAndPreviousTimesMultiplierUpToTheCap() {
+        ExponentialBackoffPolicy policy = policy(RetryJitter.DECORRELATED);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.backoffMs(1, 0)).isBetween(BASE, 3000L);
+            assertThat(policy.backoffMs(2, 4000)).isBetween(BASE, 12000L);
+            assertThat(policy.backoffMs(5, 15000)).isBetween(BASE, CAP);
+            // A previous delay below the base (e.g. a Retry-After of 0) restarts from the base
+            assertThat(policy.backoffMs(3, 10)).isBetween(BASE, 3000L);
+        }
+    }
+
+    @Test
+    void decorrelatedDelaysDriftApartOverRetries() {
+        ExponentialBackoffPolicy policy = policy(RetryJitter.DECORRELATED);
+
+        long previous = 0;
+        long max = 0;
+        for (int retry = 1; retry <= 20; retry++) {
+            previous = policy.backoffMs(retry, previous);
+            max = Math.max(max, previous);
+        }
+
+        assertThat(max).isGreaterThan(BASE).isLessThanOrEqualTo(CAP);
+    }
+
+    @Test
+    void noDelayBeforeTheFirstAttempt() {
+        for (RetryJitter jitter : RetryJitter.values()) {
+            assertThat(policy(jitter).backoffMs(0, 0)).isZero();
+        }
+    }
+
+    @Test
+    void rejectsACapBelowTheBase() {
+        assertThatThrownBy(() -> new ExponentialBackoffPolicy("PDF", 3, 5000, 3, 1000, RetryJitter.NONE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("PDF");
+    }
+
+    private static ExponentialBackoffPolicy policy(RetryJitter jitter) {
+        return new ExponentialBackoffPolicy("PDF", 5, BASE, 3, CAP, jitter);
+    }
+}
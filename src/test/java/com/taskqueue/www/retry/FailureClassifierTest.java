@@ -0,0 +1,175 @@
+package com.taskqueue.www.retry;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.retry.FailureClassifier.Classification;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FailureClassifierTest {
+
+    private final FailureClassifier classifier = new FailureClassifier();
+
+    /* ================= HTTP ================= */
+
+    @Test
+    void tooManyRequestsIsThrottledWithRetryAfterSeconds() {
+        Classification c = classifier.classify(http(HttpStatus.TOO_MANY_REQUESTS, "120"));
+
+        assertThat(c.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(c.retryAfter()).isEqualTo(Duration.ofSeconds(120));
+    }
+
+    @Test
+    void tooManyRequestsWithoutRetryAfterIsStillThrottled() {
+        Classification c = classifier.classify(http(HttpStatus.TOO_MANY_REQUESTS, null));
+
+        assertThat(c.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(c.retryAfter()).isNull();
+    }
+
+    @Test
+    void unavailableWithRetryAfterDateIsThrottledUntilThatDate() {
+        String inTenMinutes = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(10));
+
+        Classification c = classifier.classify(http(HttpStatus.SERVICE_UNAVAILABLE, inTenMinutes));
+
+        assertThat(c.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(c.retryAfter()).isBetween(Duration.ofMinutes(9), Duration.ofMinutes(10));
+    }
+
+    @Test
+    void retryAfterInThePastOrNegativeMeansNow() {
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusHours(1));
+
+        assertThat(classifier.classify(http(HttpStatus.TOO_MANY_REQUESTS, past)).retryAfter()).isZero();
+        assertThat(classifier.classify(http(HttpStatus.TOO_MANY_REQUESTS, "-5")).retryAfter()).isZero();
+    }
+
+    @Test
+    void unparseableRetryAfterIsIgnored() {
+        Classification c = classifier.classify(http(HttpStatus.TOO_MANY_REQUESTS, "soon"));
+
+        assertThat(c.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(c.retryAfter()).isNull();
+    }
+
+    @Test
+    void unavailableWithoutRetryAfterIsTransient() {
+        assertThat(classifier.classify(http(HttpStatus.SERVICE_UNAVAILABLE, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+    }
+
+    @Test
+    void serverErrorsAndRequestTimeoutAreTransient() {
+        assertThat(classifier.classify(http(HttpStatus.INTERNAL_SERVER_ERROR, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(classifier.classify(http(HttpStatus.BAD_GATEWAY, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(classifier.classify(http(HttpStatus.REQUEST_TIMEOUT, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+    }
+
+    @Test
+    void otherClientErrorsArePermanent() {
+        assertThat(classifier.classify(http(HttpStatus.BAD_REQUEST, null)).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+        assertThat(classifier.classify(http(HttpStatus.NOT_FOUND, null)).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+        assertThat(classifier.classify(http(HttpStatus.UNAUTHORIZED, null)).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+    }
+
+    /* ================= SMTP ================= */
+
+    @Test
+    void smtp421IsThrottled() {
+        assertThat(classifier.classify(smtp(421)).kind()).isEqualTo(FailureKind.THROTTLED);
+    }
+
+    @Test
+    void otherSmtp4xxIsTransient() {
+        assertThat(classifier.classify(smtp(451)).kind()).isEqualTo(FailureKind.TRANSIENT);
+    }
+
+    @Test
+    void smtp5xxIsPermanent() {
+        assertThat(classifier.classify(smtp(554)).kind()).isEqualTo(FailureKind.PERMANENT);
+    }
+
+    @Test
+    void smtpReplyIsFoundBehindMailSendException() throws Exception {
+        SMTPAddressFailedException rejected = new SMTPAddressFailedException(
+                new InternetAddress("nobody@example.com"), "RCPT TO", 550, "mailbox unavailable");
+
+        MailSendException wrapped = new MailSendException(Map.of("message", rejected));
+
+        assertThat(classifier.classify(wrapped).kind()).isEqualTo(FailureKind.PERMANENT);
+    }
+
+    @Test
+    void mailAuthenticationFailureIsPermanent() {
+        assertThat(classifier.classify(new MailAuthenticationException("bad credentials")).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+    }
+
+    /* ================= OTHER ================= */
+
+    @Test
+    void handlerVerdictWins() {
+        Classification c = classifier.classify(
+                TaskFailureException.throttled("quota", Duration.ofSeconds(5), smtp(554)));
+
+        assertThat(c.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(c.retryAfter()).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void badInputIsPermanent() {
+        assertThat(classifier.classify(new IllegalArgumentException("missing url")).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+        assertThat(classifier.classify(new JsonParseException(null, "unexpected token")).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+    }
+
+    @Test
+    void unknownFailuresAreTransient() {
+        assertThat(classifier.classify(new SocketTimeoutException("read timed out")).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(classifier.classify(new IOException("connection reset")).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+    }
+
+    private static Exception http(HttpStatus status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return status.is5xxServerError()
+                ? HttpServerErrorException.create(status, status.getReasonPhrase(), headers, null, null)
+                : HttpClientErrorException.create(status, status.getReasonPhrase(), headers, null, null);
+    }
+
+    private static SMTPSendFailedException smtp(int code) {
+        return new SMTPSendFailedException("DATA", code, code + " rejected", null, null, null, null);
+    }
+}
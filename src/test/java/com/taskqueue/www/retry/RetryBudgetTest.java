@@ -0,0 +1,62 @@
+package com.taskqueue.www.retry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+
+    @Test
+    void startsFullAndRunsDryAfterItsBurst() {
+        RetryBudget budget = new RetryBudget(0.2, 0, 3);
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void firstAttemptsFundRetriesAtTheRatio() {
+        RetryBudget budget = new RetryBudget(0.2, 0, 3);
+        drain(budget);
+
+        for (int i = 0; i < 4; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.tryWithdraw()).isFalse(); // 0.8 tokens
+
+        budget.deposit();
+        assertThat(budget.tryWithdraw()).isTrue();  // 1.0 token
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void depositsNeverExceedTheBurst() {
+        RetryBudget budget = new RetryBudget(1, 0, 2);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertThat(drain(budget)).isEqualTo(2);
+    }
+
+    @Test
+    void floorRefillsAQuietType() throws Exception {
+        RetryBudget budget = new RetryBudget(0.2, 100, 3);
+        drain(budget);
+
+        Thread.sleep(50); // 100/s -> about 5 tokens, capped at 3
+
+        assertThat(budget.tryWithdraw()).isTrue();
+    }
+
+    private static int drain(RetryBudget budget) {
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        return withdrawn;
+    }
+}
@@ -0,0 +1,91 @@
+package com.taskqueue.www.retry;
+
+import com.taskqueue.www.enums.FailureKind;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.retry.FailureClassifier.Classification;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyRegistryTest {
+
+    private static final Classification TRANSIENT = new Classification(FailureKind.TRANSIENT, null);
+
+    private final RetryPolicyRegistry registry = new RetryPolicyRegistry(List.of(), new MockEnvironment()
+            .withProperty("retry.policy.jitter", "NONE")
+            .withProperty("retry.policy.base-ms", "1000")
+            .withProperty("retry.policy.budget-burst", "2")
+            .withProperty("retry.policy.budget-min-per-second", "0")
+            .withProperty("retry.policy.budget-deferral-ms", "60000")
+            .withProperty("retry.policy.max-retry-after-ms", "120000")
+            .withProperty("retry.policy.WEBHOOK.max-retries", "5"));
+
+    @Test
+    void retriesTransientFailuresOnTheBackoffSchedule() {
+        assertThat(registry.decide(new Task(), "PDF", 1, TRANSIENT)).isEqualTo(RetryDecision.after(1000));
+        assertThat(registry.decide(new Task(), "PDF", 2, TRANSIENT)).isEqualTo(RetryDecision.after(3000));
+    }
+
+    @Test
+    void givesUpOnPermanentFailures() {
+        assertThat(registry.decide(new Task(), "PDF", 1, new Classification(FailureKind.PERMANENT, null)))
+                .isEqualTo(RetryDecision.giveUp());
+    }
+
+    @Test
+    void givesUpOnceMaxRetriesAreUsed() {
+        assertThat(registry.decide(new Task(), "PDF", 4, TRANSIENT)).isEqualTo(RetryDecision.giveUp());
+        assertThat(registry.decide(new Task(), "WEBHOOK", 4, TRANSIENT).retry()).isTrue();
+
+        Task task = new Task();
+        task.setMaxRetries(1);
+        assertThat(registry.maxRetries(task, "WEBHOOK")).isEqualTo(1);
+        assertThat(registry.decide(task, "WEBHOOK", 2, TRANSIENT)).isEqualTo(RetryDecision.giveUp());
+    }
+
+    @Test
+    void throttledFailuresWaitForRetryAfterUpToTheMaximum() {
+        assertThat(registry.decide(new Task(), "PDF", 1,
+                new Classification(FailureKind.THROTTLED, Duration.ofSeconds(30))))
+                .isEqualTo(RetryDecision.after(30000));
+        assertThat(registry.decide(new Task(), "PDF", 1,
+                new Classification(FailureKind.THROTTLED, Duration.ofHours(1))))
+                .isEqualTo(RetryDecision.after(120000));
+    }
+
+    @Test
+    void throttledFailuresDoNotSpendTheBudget() {
+        Classification throttled = new Classification(FailureKind.THROTTLED, null);
+        for (int i = 0; i < 10; i++) {
+            assertThat(registry.decide(new Task(), "EMAIL", 1, throttled).deferred()).isFalse();
+        }
+        assertThat(registry.decide(new Task(), "EMAIL", 1, TRANSIENT).deferred()).isFalse();
+    }
+
+    @Test
+    void retriesBeyondTheBudgetAreDeferredNotDropped() {
+        registry.decide(new Task(), "PDF", 1, TRANSIENT);
+        registry.decide(new Task(), "PDF", 1, TRANSIENT);
+
+        RetryDecision decision = registry.decide(new Task(), "PDF", 1, TRANSIENT);
+
+        assertThat(decision.retry()).isTrue();
+        assertThat(decision.deferred()).isTrue();
+        assertThat(decision.delayMs()).isBetween(30000L, 60000L);
+    }
+
+    @Test
+    void firstAttemptsRefundTheBudget() {
+        registry.decide(new Task(), "PDF", 1, TRANSIENT);
+        registry.decide(new Task(), "PDF", 1, TRANSIENT);
+        for (int i = 0; i < 5; i++) {
+            registry.recordFirstAttempt("PDF"); // 5 x 0.2
+        }
+
+        assertThat(registry.decide(new Task(), "PDF", 1, TRANSIENT).deferred()).isFalse();
+    }
+}
@@ -0,0 +1,79 @@
+package com.taskqueue.www.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorFingerprinterTest {
+
+    private final ErrorFingerprinter fingerprinter = new ErrorFingerprinter();
+
+    @Test
+    void masksNumbers() {
+        assertThat(fingerprinter.normalize("task 123 timed out after 5012ms"))
+                .isEqualTo("task <n> timed out after <n>ms");
+    }
+
+    @Test
+    void masksUuidsBeforeTheDigitsInsideThem() {
+        assertThat(fingerprinter.normalize("job 3f2b8c1e-9a4d-4e7f-b2c1-0d9e8f7a6b5c not found"))
+                .isEqualTo("job <uuid> not found");
+    }
+
+    @Test
+    void masksUrlsAndEmails() {
+        assertThat(fingerprinter.normalize("POST https://hooks.example.com/a/42?x=1 failed"))
+                .isEqualTo("POST <url> failed");
+        assertThat(fingerprinter.normalize("mailbox user.name+tag@mail.example.org is full"))
+                .isEqualTo("mailbox <email> is full");
+    }
+
+    @Test
+    void masksQuotedValues() {
+        assertThat(fingerprinter.normalize("unknown template 'invoice-v2' for \"acme\""))
+                .isEqualTo("unknown template <str> for <str>");
+    }
+
+    @Test
+    void masksHexButLeavesPlainWordsAlone() {
+        assertThat(fingerprinter.normalize("object deadbeef1234 missing"))
+                .isEqualTo("object <hex> missing");
+        assertThat(fingerprinter.normalize("connection refused by database"))
+                .isEqualTo("connection refused by database");
+    }
+
+    @Test
+    void collapsesWhitespace() {
+        assertThat(fingerprinter.normalize("  broken \n\t pipe  ")).isEqualTo("broken pipe");
+    }
+
+    @Test
+    void capsTheNormalizedMessage() {
+        assertThat(fingerprinter.normalize("x".repeat(2000))).hasSize(500);
+    }
+
+    @Test
+    void nullMessageNormalizesToEmpty() {
+        assertThat(fingerprinter.normalize(null)).isEmpty();
+        assertThat(fingerprinter.fingerprint("PDF", "java.io.IOException", null))
+                .isEqualTo(fingerprinter.fingerprint("PDF", "java.io.IOException", ""));
+    }
+
+    @Test
+    void sameFailureWithDifferentIdsSharesAFingerprint() {
+        String first = fingerprinter.fingerprint("PDF", "java.util.concurrent.TimeoutException",
+                "task 123 timed out after 5012ms");
+        String second = fingerprinter.fingerprint("PDF", "java.util.concurrent.TimeoutException",
+                "task 456 timed out after 4998ms");
+
+        assertThat(first).isEqualTo(second).hasSize(32).matches("[0-9a-f]+");
+    }
+
+    @Test
+    void typeAndExceptionClassSplitGroups() {
+        String base = fingerprinter.fingerprint("PDF", "java.io.IOException", "broken pipe");
+
+        assertThat(fingerprinter.fingerprint("EMAIL", "java.io.IOException", "broken pipe")).isNotEqualTo(base);
+        assertThat(fingerprinter.fingerprint("PDF", "java.net.SocketException", "broken pipe")).isNotEqualTo(base);
+    }
+}
@@ -0,0 +1,82 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.model.OutboxEvent;
+import com.taskqueue.www.repository.OutboxRepository;
+import com.taskqueue.www.transport.TaskTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class OutboxPublisherTest {
+
+    private final CountDownLatch broker = new CountDownLatch(1);
+    private final CountDownLatch sent = new CountDownLatch(1);
+
+    // A producer that blocks until the broker comes back
+    private final TaskTransport transport = event -> {
+        try {
+            broker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sent.countDown();
+    };
+
+    private final OutboxPublisher publisher = new OutboxPublisher(
+            mock(OutboxRepository.class), transport, mock(TransactionTemplate.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(publisher, "publishAfterCommit", true);
+        ReflectionTestUtils.setField(publisher, "afterCommitQueue", 10);
+        publisher.startAfterCommitSender();
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        TransactionSynchronizationManager.clearSynchronization();
+        broker.countDown();
+        publisher.shutdown();
+    }
+
+    @Test
+    void claimsTheEventAndSendsItOffTheCommittingThread() throws InterruptedException {
+        OutboxEvent event = new OutboxEvent();
+        publisher.publishAfterCommit(event);
+
+        assertThat(event.getStatus()).isEqualTo("IN_FLIGHT");
+        assertThat(event.getClaimedAt()).isNotNull();
+
+        long start = System.nanoTime();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(sent.getCount()).isEqualTo(1);
+
+        broker.countDown();
+        assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void leavesTheEventToThePollerOutsideATransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+
+        OutboxEvent event = new OutboxEvent();
+        event.setStatus("NEW");
+        publisher.publishAfterCommit(event);
+
+        assertThat(event.getStatus()).isEqualTo("NEW");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+}
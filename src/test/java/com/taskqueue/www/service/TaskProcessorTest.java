@@ -0,0 +1,85 @@
+package com.taskqueue.www.service;
+
+import com.taskqueue.www.handler.TaskHandlerRegistry;
+import com.taskqueue.www.kafka.TaskMessageCodec;
+import com.taskqueue.www.kafka.TaskMessageCodec.TaskMessage;
+import com.taskqueue.www.metrics.TaskMetrics;
+import com.taskqueue.www.model.Task;
+import com.taskqueue.www.repository.DeadLetterQueueRepository;
+import com.taskqueue.www.repository.TaskRepository;
+import com.taskqueue.www.retry.FailureClassifier;
+import com.taskqueue.www.retry.RetryPolicyRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskProcessorTest {
+
+    private static final TaskMessage MESSAGE = new TaskMessage(7L, "EMAIL", "{}");
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final DeadLetterQueueRepository dlqRepository = mock(DeadLetterQueueRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final TaskLeaseManager leaseManager = mock(TaskLeaseManager.class);
+    private final TaskMetrics taskMetrics = mock(TaskMetrics.class);
+
+    private final TaskProcessor processor = new TaskProcessor(taskRepository, mock(TaskHandlerRegistry.class),
+            dlqRepository, mock(TaskMessageCodec.class), transactionTemplate, leaseManager, taskMetrics,
+            mock(RetryPolicyRegistry.class), mock(FailureClassifier.class), mock(ErrorFingerprinter.class));
+
+    @BeforeEach
+    void setUp() {
+        // Runs the callback inline; a throwing callback stands in for a rolled-back transaction
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(leaseManager.owner()).thenReturn("node-1");
+
+        Task task = new Task();
+        task.setId(7L);
+        task.setRetryCount(3);
+        when(taskRepository.claimForProcessing(anyList(), any(), any(), any())).thenReturn(List.of(task));
+        when(taskRepository.failTask(eq(7L), eq("node-1"), anyInt(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void aFailingDlqWriteStillEndsTheTaskFailed() {
+        when(dlqRepository.save(any())).thenThrow(new DataIntegrityViolationException("value too long"));
+
+        processor.deadLetter(MESSAGE, "Gave up after 5 deliveries");
+
+        // Once with the DLQ entry (rolled back), then on its own so the reaper cannot pick it up again
+        verify(taskRepository, times(2)).failTask(eq(7L), eq("node-1"), eq(3), any(), any());
+        verify(taskRepository).failTask(eq(7L), eq("node-1"), eq(3),
+                startsWith("DLQ write failed (value too long): Gave up"), any());
+        verify(taskMetrics).dlqWriteFailed("EMAIL");
+        verify(taskMetrics, never()).movedToDlq(any());
+    }
+
+    @Test
+    void leavesTheTaskToTheReaperWhenTheDatabaseIsDown() {
+        when(dlqRepository.save(any())).thenThrow(new QueryTimeoutException("timeout"));
+        when(taskRepository.failTask(eq(7L), eq("node-1"), anyInt(), startsWith("DLQ write failed"), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        processor.deadLetter(MESSAGE, "Gave up after 5 deliveries");
+
+        verify(taskMetrics, never()).dlqWriteFailed(any());
+        verify(taskMetrics, never()).movedToDlq(any());
+    }
+}